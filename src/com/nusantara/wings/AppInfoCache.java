@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageItemInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.LruCache;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide cache of app labels and icons. Labels and icon thumbnails are
+ * kept in bounded memory caches, thumbnails are also written to a small
+ * {@link ThumbnailDiskStore}. Labels and stored thumbnails are keyed by package
+ * name, version code and last update time, so a new Settings process does not
+ * load them from the package manager again and an update never serves stale
+ * ones.
+ * Entries of a package are dropped when it is added, changed or removed.
+ *
+ * <p>Icon memory hits are cheap; labels always look up the package version and
+ * anything else may touch the disk or the package manager, so both should be
+ * requested off the main thread.
+ */
+public class AppInfoCache {
+
+    private static final String DISK_DIR = "app_icons";
+    private static final int MAX_LABELS = 512;
+    private static final int MAX_ICON_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_DISK_FILES = 256;
+
+    private static AppInfoCache sInstance;
+
+    private final Context mContext;
+    private final PackageManager mPackageManager;
+    private final ThumbnailDiskStore mDiskStore;
+    private final int mIconSize;
+
+    // Keyed by versioned package name, with /component for activity labels
+    private final LruCache<String, CharSequence> mLabels = new LruCache<>(MAX_LABELS);
+    private final LruCache<String, Bitmap> mIcons = new LruCache<String, Bitmap>(MAX_ICON_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mDiskHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+
+    public static synchronized AppInfoCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AppInfoCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AppInfoCache(Context context) {
+        mContext = context;
+        mPackageManager = context.getPackageManager();
+        mDiskStore = new ThumbnailDiskStore(new File(context.getCacheDir(), DISK_DIR),
+                MAX_DISK_FILES);
+        mIconSize = context.getResources().getDimensionPixelSize(android.R.dimen.app_icon_size);
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        context.registerReceiver(mPackageReceiver, filter);
+        context.registerReceiver(mLocaleReceiver,
+                new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
+    }
+
+    public CharSequence getLabel(PackageItemInfo info) {
+        String versionedName = getVersionedName(info.packageName);
+        String key = info instanceof ApplicationInfo ? versionedName
+                : versionedName + "/" + info.name;
+        CharSequence label = mLabels.get(key);
+        if (label != null) {
+            mHits.incrementAndGet();
+            return label;
+        }
+        mMisses.incrementAndGet();
+        label = info.loadLabel(mPackageManager);
+        if (label == null) {
+            label = info.packageName;
+        }
+        mLabels.put(key, label);
+        return label;
+    }
+
+    public Drawable getIcon(ApplicationInfo info) {
+        String packageName = info.packageName;
+        Bitmap icon = mIcons.get(packageName);
+        if (icon != null) {
+            mHits.incrementAndGet();
+            return new BitmapDrawable(mContext.getResources(), icon);
+        }
+
+        String diskName = getVersionedName(packageName);
+        icon = mDiskStore.get(diskName);
+        if (icon != null) {
+            mDiskHits.incrementAndGet();
+        } else {
+            mMisses.incrementAndGet();
+            icon = toThumbnail(info.loadIcon(mPackageManager));
+            // Older versions of the package are useless now
+            mDiskStore.deleteAll(packageName + "@");
+            mDiskStore.put(diskName, icon);
+        }
+        mIcons.put(packageName, icon);
+        return new BitmapDrawable(mContext.getResources(), icon);
+    }
+
+    /**
+     * @return lookups served from memory
+     */
+    public int getHitCount() {
+        return mHits.get();
+    }
+
+    /**
+     * @return icon lookups served from the disk store
+     */
+    public int getDiskHitCount() {
+        return mDiskHits.get();
+    }
+
+    /**
+     * @return lookups that had to go to the package manager
+     */
+    public int getMissCount() {
+        return mMisses.get();
+    }
+
+    private String getVersionedName(String packageName) {
+        long versionCode = 0;
+        long lastUpdateTime = 0;
+        try {
+            PackageInfo pi = mPackageManager.getPackageInfo(packageName, 0);
+            versionCode = pi.getLongVersionCode();
+            lastUpdateTime = pi.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            // Not cached under a real version, replaced once the package shows up
+        }
+        return packageName + "@" + versionCode + "@" + lastUpdateTime;
+    }
+
+    private Bitmap toThumbnail(Drawable drawable) {
+        Bitmap bitmap = Bitmap.createBitmap(mIconSize, mIconSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, mIconSize, mIconSize);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+
+    private void invalidate(String packageName) {
+        final String prefix = packageName + "@";
+        mIcons.remove(packageName);
+        for (String key : mLabels.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mLabels.remove(key);
+            }
+        }
+        // Called from the receiver on the main thread, the files go elsewhere
+        ThreadUtils.postOnBackgroundThread(() -> mDiskStore.deleteAll(prefix));
+    }
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName != null) {
+                invalidate(packageName);
+            }
+        }
+    };
+
+    private final BroadcastReceiver mLocaleReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mLabels.evictAll();
+        }
+    };
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.os.Build;
+import android.provider.Settings;
+import android.util.SparseBooleanArray;
+
+import com.android.internal.util.nad.NadUtils;
+import com.android.settings.R;
+
+/**
+ * Immutable snapshot of what the device can do. It is computed once per boot,
+ * kept in memory for the process and persisted keyed by build fingerprint and
+ * boot count, so a restarted Settings process does not compute it again.
+ */
+public final class DeviceCapabilities {
+
+    private static final String PREFS_NAME = "device_capabilities";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_BOOT_COUNT = "boot_count";
+    private static final String KEY_BLUR = "blur";
+    private static final String KEY_HW_KEYS = "hw_keys";
+    private static final String KEY_FINGERPRINT_SENSOR = "fingerprint_sensor";
+    private static final String KEY_NAVIGATION_BAR = "navigation_bar";
+    private static final String KEY_CATEGORY_PREFIX = "category_";
+
+    public static final int KEY_MASK_HOME = 0x01;
+    public static final int KEY_MASK_BACK = 0x02;
+    public static final int KEY_MASK_MENU = 0x04;
+    public static final int KEY_MASK_ASSIST = 0x08;
+    public static final int KEY_MASK_APP_SWITCH = 0x10;
+    public static final int KEY_MASK_CAMERA = 0x20;
+
+    // Category toggles that decide which rows the Wings tabs show
+    private static final int[] CATEGORY_FLAGS = {
+            R.bool.has_lockscreen_items,
+            R.bool.has_fingerprint_prefs,
+            R.bool.has_buttons,
+            R.bool.has_navigation,
+            R.bool.has_battery_options,
+            R.bool.has_carrier_label,
+            R.bool.has_clock_options,
+            R.bool.has_icon_manager,
+            R.bool.has_notifications,
+            R.bool.has_quick_settings,
+            R.bool.has_traffic,
+            R.bool.has_misc_options,
+            R.bool.has_powermenu,
+            R.bool.has_themes,
+            R.bool.has_nusantara_parts_available,
+    };
+
+    private static DeviceCapabilities sInstance;
+
+    private final boolean mBlurSupported;
+    private final int mDeviceHardwareKeys;
+    private final boolean mFingerprintSupported;
+    private final boolean mNavigationBarSupported;
+    private final SparseBooleanArray mCategories;
+
+    private DeviceCapabilities(boolean blurSupported, int deviceHardwareKeys,
+            boolean fingerprintSupported, boolean navigationBarSupported,
+            SparseBooleanArray categories) {
+        mBlurSupported = blurSupported;
+        mDeviceHardwareKeys = deviceHardwareKeys;
+        mFingerprintSupported = fingerprintSupported;
+        mNavigationBarSupported = navigationBarSupported;
+        mCategories = categories;
+    }
+
+    public static synchronized DeviceCapabilities get(Context context) {
+        if (sInstance == null) {
+            context = context.getApplicationContext();
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME,
+                    Context.MODE_PRIVATE);
+            int bootCount = Settings.Global.getInt(context.getContentResolver(),
+                    Settings.Global.BOOT_COUNT, 0);
+            sInstance = load(prefs, bootCount);
+            if (sInstance == null) {
+                sInstance = compute(context);
+                sInstance.save(prefs, bootCount);
+            }
+        }
+        return sInstance;
+    }
+
+    private static DeviceCapabilities compute(Context context) {
+        Resources res = context.getResources();
+        SparseBooleanArray categories = new SparseBooleanArray(CATEGORY_FLAGS.length);
+        for (int flag : CATEGORY_FLAGS) {
+            categories.put(flag, res.getBoolean(flag));
+        }
+        return new DeviceCapabilities(
+                UtilsNad.isBlurSupported(),
+                res.getInteger(com.android.internal.R.integer.config_deviceHardwareKeys),
+                NadUtils.hasFingerprintSupport(context),
+                NadUtils.deviceSupportNavigationBar(context),
+                categories);
+    }
+
+    private static DeviceCapabilities load(SharedPreferences prefs, int bootCount) {
+        if (!Build.FINGERPRINT.equals(prefs.getString(KEY_FINGERPRINT, null))
+                || prefs.getInt(KEY_BOOT_COUNT, -1) != bootCount) {
+            return null;
+        }
+        SparseBooleanArray categories = new SparseBooleanArray(CATEGORY_FLAGS.length);
+        for (int flag : CATEGORY_FLAGS) {
+            categories.put(flag, prefs.getBoolean(KEY_CATEGORY_PREFIX + flag, true));
+        }
+        return new DeviceCapabilities(
+                prefs.getBoolean(KEY_BLUR, false),
+                prefs.getInt(KEY_HW_KEYS, 0),
+                prefs.getBoolean(KEY_FINGERPRINT_SENSOR, false),
+                prefs.getBoolean(KEY_NAVIGATION_BAR, false),
+                categories);
+    }
+
+    private void save(SharedPreferences prefs, int bootCount) {
+        SharedPreferences.Editor editor = prefs.edit()
+                .clear()
+                .putString(KEY_FINGERPRINT, Build.FINGERPRINT)
+                .putInt(KEY_BOOT_COUNT, bootCount)
+                .putBoolean(KEY_BLUR, mBlurSupported)
+                .putInt(KEY_HW_KEYS, mDeviceHardwareKeys)
+                .putBoolean(KEY_FINGERPRINT_SENSOR, mFingerprintSupported)
+                .putBoolean(KEY_NAVIGATION_BAR, mNavigationBarSupported);
+        for (int i = 0; i < mCategories.size(); i++) {
+            editor.putBoolean(KEY_CATEGORY_PREFIX + mCategories.keyAt(i),
+                    mCategories.valueAt(i));
+        }
+        editor.apply();
+    }
+
+    public boolean isBlurSupported() {
+        return mBlurSupported;
+    }
+
+    /**
+     * @return config_deviceHardwareKeys, a combination of the KEY_MASK_* bits
+     */
+    public int getDeviceHardwareKeys() {
+        return mDeviceHardwareKeys;
+    }
+
+    public boolean hasHardwareKeys() {
+        return (mDeviceHardwareKeys & (KEY_MASK_HOME | KEY_MASK_BACK | KEY_MASK_MENU
+                | KEY_MASK_APP_SWITCH)) != 0;
+    }
+
+    public boolean isFingerprintSupported() {
+        return mFingerprintSupported;
+    }
+
+    public boolean isNavigationBarSupported() {
+        return mNavigationBarSupported;
+    }
+
+    /**
+     * @param flag one of the R.bool.has_* category toggles
+     */
+    public boolean hasCategory(int flag) {
+        return mCategories.get(flag, true);
+    }
+}
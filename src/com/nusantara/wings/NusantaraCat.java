@@ -25,11 +25,7 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 
-import com.android.settings.SettingsPreferenceFragment;
-
-import com.android.internal.util.nad.NadUtils;
-
-public class NusantaraCat extends SettingsPreferenceFragment {
+public class NusantaraCat extends WingsTabFragment {
 
     private static final String BUTTONS_CATEGORY = "buttons_category";
     private static final String NAVIGATION_CATEGORY = "navigation_category";
@@ -51,83 +47,84 @@ public class NusantaraCat extends SettingsPreferenceFragment {
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
         addPreferencesFromResource(R.xml.tab_cat);
+        final DeviceCapabilities caps = DeviceCapabilities.get(getContext());
 
         Preference Buttons = findPreference(BUTTONS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_buttons)) {
+        if (!caps.hasCategory(R.bool.has_buttons)) {
             getPreferenceScreen().removePreference(Buttons);
         }
 
         Preference Navigation = findPreference(NAVIGATION_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_navigation)) {
+        if (!caps.hasCategory(R.bool.has_navigation)) {
             getPreferenceScreen().removePreference(Navigation);
         }
 
         Preference PowerMenu = findPreference(POWERMENU_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_powermenu)) {
+        if (!caps.hasCategory(R.bool.has_powermenu)) {
             getPreferenceScreen().removePreference(PowerMenu);
         }
 
         Preference LockscreenItems = findPreference(LOCKSCREEN_ITEMS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_lockscreen_items)) {
+        if (!caps.hasCategory(R.bool.has_lockscreen_items)) {
             getPreferenceScreen().removePreference(LockscreenItems);
         }
 
         Preference FingerprintPrefs = findPreference(FINGERPRINT_PREFS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_fingerprint_prefs)) {
+        if (!caps.hasCategory(R.bool.has_fingerprint_prefs)) {
             getPreferenceScreen().removePreference(FingerprintPrefs);
         } else {
-            if (!NadUtils.hasFingerprintSupport(getContext())) {
+            if (!caps.isFingerprintSupported()) {
                 getPreferenceScreen().removePreference(FingerprintPrefs);
             }
         }
 
         Preference BatteryOptions = findPreference(BATTERY_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_battery_options)) {
+        if (!caps.hasCategory(R.bool.has_battery_options)) {
             getPreferenceScreen().removePreference(BatteryOptions);
         }
 
         Preference CarrierLabel = findPreference(CARRIER_LABEL_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_carrier_label)) {
+        if (!caps.hasCategory(R.bool.has_carrier_label)) {
             getPreferenceScreen().removePreference(CarrierLabel);
         }
 
         Preference ClockOptions = findPreference(CLOCK_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_clock_options)) {
+        if (!caps.hasCategory(R.bool.has_clock_options)) {
             getPreferenceScreen().removePreference(ClockOptions);
         }
 
         Preference IconManager = findPreference(ICON_MANAGER_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_icon_manager)) {
+        if (!caps.hasCategory(R.bool.has_icon_manager)) {
             getPreferenceScreen().removePreference(IconManager);
         }
 
         Preference QuickSettings = findPreference(QUICK_SETTINGS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_quick_settings)) {
+        if (!caps.hasCategory(R.bool.has_quick_settings)) {
             getPreferenceScreen().removePreference(QuickSettings);
         }
 
         Preference Traffic = findPreference(TRAFFIC_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_traffic)) {
+        if (!caps.hasCategory(R.bool.has_traffic)) {
             getPreferenceScreen().removePreference(Traffic);
         }
 
         Preference NusantaraParts = findPreference(NUSANTARA_PARTS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_nusantara_parts_available)) {
+        if (!caps.hasCategory(R.bool.has_nusantara_parts_available)) {
             getPreferenceScreen().removePreference(NusantaraParts);
         }
 
         Preference Notifications = findPreference(NOTIFICATIONS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_notifications)) {
+        if (!caps.hasCategory(R.bool.has_notifications)) {
             getPreferenceScreen().removePreference(Notifications);
         }
 
         Preference MiscOptions = findPreference(MISC_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_misc_options)) {
+        if (!caps.hasCategory(R.bool.has_misc_options)) {
             getPreferenceScreen().removePreference(MiscOptions);
         }
 
         Preference Themes = findPreference(THEMES_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_themes)) {
+        if (!caps.hasCategory(R.bool.has_themes)) {
             getPreferenceScreen().removePreference(Themes);
         }
     }
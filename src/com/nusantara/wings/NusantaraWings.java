@@ -19,20 +19,24 @@ package com.nusantara.wings;
 import android.app.ActionBar;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.os.UserHandle;
 import android.provider.Settings;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import androidx.viewpager.widget.ViewPager;
+import android.view.ViewTreeObserver;
 
 import androidx.fragment.app.Fragment;
-import androidx.fragment.app.FragmentManager;
-import androidx.fragment.app.FragmentPagerAdapter;
+import androidx.viewpager2.adapter.FragmentStateAdapter;
+import androidx.viewpager2.widget.ViewPager2;
 
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
@@ -46,16 +50,42 @@ import com.nusantara.wings.tabs.Statusbar;
 import com.nusantara.wings.tabs.System;
 import com.nusantara.wings.bottomnav.BubbleNavigationConstraintView;
 import com.nusantara.wings.bottomnav.BubbleNavigationChangeListener;
+import com.nusantara.wings.bottomnav.TitleWidthCache;
 
 public class NusantaraWings extends SettingsPreferenceFragment {
 
+    private static final String TAG = "NusantaraWings";
+    private static final String COLD_OPEN_TRACE = "NusantaraWings#coldOpen";
+
+    // Category styles of CATEGORY_NUSANTARA, 1 shows a single list instead of tabs
+    private static final int CAT_STYLE_SINGLE_LIST = 1;
+
     protected Context mContext;
     private View view;
     private int mCatStyle;
+    private long mCreateTime;
     ViewGroup mContainer;
     LayoutInflater mInflater;
-    ViewPager mViewPager;
+    ViewPager2 mViewPager;
     PagerAdapter mPagerAdapter;
+    private SharedRowPool mRowPool;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mCreateTime = SystemClock.uptimeMillis();
+        Trace.beginAsyncSection(COLD_OPEN_TRACE, 0);
+        mCatStyle = Settings.System.getIntForUser(getActivity().getContentResolver(),
+                Settings.System.CATEGORY_NUSANTARA, 0, UserHandle.USER_CURRENT);
+        mRowPool = new SharedRowPool(
+                getResources().getInteger(R.integer.nusantarawings_category_pool_size));
+        // Measure the bubble titles while the fragment is being set up
+        TitleWidthCache.prefetch(getActivity(),
+                getString(R.string.bottom_nav_system_title),
+                getString(R.string.bottom_nav_lockscreen_title),
+                getString(R.string.bottom_nav_statusbar_title),
+                getString(R.string.bottom_nav_hardware_title));
+    }
 
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
 
@@ -69,10 +99,9 @@ public class NusantaraWings extends SettingsPreferenceFragment {
 
     public void createNavLayout() {
 
-        int mCatStyle = Settings.System.getIntForUser(getActivity().getContentResolver(),
-                Settings.System.CATEGORY_NUSANTARA, 0, UserHandle.USER_CURRENT);
-
+        Trace.beginSection("NusantaraWings#inflateNav");
         view = mInflater.inflate(R.layout.nusantarawings, mContainer, false);
+        Trace.endSection();
 
         ActionBar actionBar = getActivity().getActionBar();
         if (actionBar != null) {
@@ -81,12 +110,14 @@ public class NusantaraWings extends SettingsPreferenceFragment {
 
         BubbleNavigationConstraintView bubbleNavigationConstraintView =  (BubbleNavigationConstraintView) view.findViewById(R.id.bottom_navigation_view_constraint);
         mViewPager = view.findViewById(R.id.viewpager);
-        mPagerAdapter = new PagerAdapter(getFragmentManager());
+        // Tabs are created when first shown, only the visible one is resumed
+        mViewPager.setOffscreenPageLimit(
+                getResources().getInteger(R.integer.nusantarawings_offscreen_page_limit));
+        mPagerAdapter = new PagerAdapter(this);
         mViewPager.setAdapter(mPagerAdapter);
+        logColdOpen();
 
-        if (mCatStyle == 0) {
-            bubbleNavigationConstraintView.setVisibility(View.VISIBLE);
-        } else if (mCatStyle == 1) {
+        if (mCatStyle == CAT_STYLE_SINGLE_LIST) {
             bubbleNavigationConstraintView.setVisibility(View.GONE);
         } else {
             bubbleNavigationConstraintView.setVisibility(View.VISIBLE);
@@ -111,88 +142,84 @@ public class NusantaraWings extends SettingsPreferenceFragment {
            }
        });
 
-        mViewPager.addOnPageChangeListener(new ViewPager.OnPageChangeListener() {
+        mViewPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
             @Override
             public void onPageScrolled(int i, float v, int i1) {
+                bubbleNavigationConstraintView.setScrollPosition(i, v);
             }
 
             @Override
             public void onPageSelected(int i) {
+                // Only moves the active state, the pager's offsets draw the items
                 bubbleNavigationConstraintView.setCurrentActiveItem(i);
             }
 
             @Override
-            public void onPageScrollStateChanged(int i) {
+            public void onPageScrollStateChanged(int state) {
+                if (Build.IS_DEBUGGABLE && state == ViewPager2.SCROLL_STATE_IDLE) {
+                    Log.d(TAG, "Rows inflated for tab " + mViewPager.getCurrentItem() + ": "
+                            + mRowPool.takeInflationCount());
+                }
             }
         });
         setHasOptionsMenu(true);
     }
 
-    class PagerAdapter extends FragmentPagerAdapter {
+    private void logColdOpen() {
+        if (mCreateTime == 0) {
+            return;
+        }
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                Trace.endAsyncSection(COLD_OPEN_TRACE, 0);
+                if (Build.IS_DEBUGGABLE) {
+                    Log.d(TAG, "Opened in " + (SystemClock.uptimeMillis() - mCreateTime) + " ms");
+                }
+                // Only the first view of this fragment is a cold open
+                mCreateTime = 0;
+                return true;
+            }
+        });
+    }
 
-        int mCatStyle = Settings.System.getIntForUser(getActivity().getContentResolver(),
-                Settings.System.CATEGORY_NUSANTARA, 0, UserHandle.USER_CURRENT);
+    /**
+     * @return pool the tab lists share their rows through
+     */
+    SharedRowPool getRowPool() {
+        return mRowPool;
+    }
 
-        String titles[] = getTitles();
-        private Fragment frags[] = new Fragment[titles.length];
-
-        PagerAdapter(FragmentManager fm) {
-            super(fm);
-
-        	if (mCatStyle == 0) {
-                frags[0] = new System();
-                frags[1] = new Lockscreen();
-                frags[2] = new Statusbar();
-                frags[3] = new Hardware();
-        	  } else if (mCatStyle == 1)  {
-                frags[0] = new NusantaraCat();
-        	  } else {
-                frags[0] = new System();
-                frags[1] = new Lockscreen();
-                frags[2] = new Statusbar();
-                frags[3] = new Hardware();
-            }
-        }
+    class PagerAdapter extends FragmentStateAdapter {
 
-        @Override
-        public Fragment getItem(int position) {
-            return frags[position];
+        PagerAdapter(Fragment fragment) {
+            super(fragment);
         }
 
         @Override
-        public int getCount() {
-            return frags.length;
+        public Fragment createFragment(int position) {
+            if (mCatStyle == CAT_STYLE_SINGLE_LIST) {
+                return new NusantaraCat();
+            }
+            switch (position) {
+                case 1:
+                    return new Lockscreen();
+                case 2:
+                    return new Statusbar();
+                case 3:
+                    return new Hardware();
+                default:
+                    return new System();
+            }
         }
 
         @Override
-        public CharSequence getPageTitle(int position) {
-            return titles[position];
+        public int getItemCount() {
+            return mCatStyle == CAT_STYLE_SINGLE_LIST ? 1 : 4;
         }
     }
 
-    private String[] getTitles() {
-        int mCatStyle = Settings.System.getIntForUser(getActivity().getContentResolver(),
-                Settings.System.CATEGORY_NUSANTARA, 0, UserHandle.USER_CURRENT);
-        String titleString[];
-        if (mCatStyle == 0) {
-        titleString = new String[]{
-                getString(R.string.bottom_nav_system_title),
-                getString(R.string.bottom_nav_lockscreen_title),
-                getString(R.string.bottom_nav_statusbar_title),
-                getString(R.string.bottom_nav_hardware_title)};
-        	} else if (mCatStyle == 1) {
-                titleString = new String[]{
-                getString(R.string.nusantarawings_title)};
-        	} else {
-                titleString = new String[]{
-                getString(R.string.bottom_nav_system_title),
-                getString(R.string.bottom_nav_lockscreen_title),
-                getString(R.string.bottom_nav_statusbar_title),
-                getString(R.string.bottom_nav_hardware_title)};
-          }
-        return titleString;
-    }
-
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarts app processes on one background thread. Requests for the same
+ * process arriving within {@link #COALESCE_WINDOW_MS} end up in a single kill.
+ */
+public class RestartCoordinator {
+
+    private static final String TAG = "RestartCoordinator";
+
+    private static final long COALESCE_WINDOW_MS = 750;
+
+    private static RestartCoordinator sInstance;
+
+    private final PackageManager mPackageManager;
+    private final ScheduledExecutorService mExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+    // Processes with a restart already scheduled
+    private final Set<String> mPending = new HashSet<>();
+
+    public static synchronized RestartCoordinator getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RestartCoordinator(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RestartCoordinator(Context context) {
+        mPackageManager = context.getPackageManager();
+    }
+
+    /**
+     * Schedules a restart of {@code packageName}'s main process.
+     */
+    public void requestRestart(String packageName) {
+        synchronized (mPending) {
+            if (mPending.add(packageName)) {
+                mExecutor.schedule(() -> restart(packageName),
+                        COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void restart(String packageName) {
+        synchronized (mPending) {
+            mPending.remove(packageName);
+        }
+        try {
+            // The main process is named after the package, so the uid is all
+            // that is needed and the running process list is never walked
+            int uid = mPackageManager.getApplicationInfo(packageName, 0).uid;
+            ActivityManager.getService().killApplicationProcess(packageName, uid);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to restart " + packageName, e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide settings observer. Every URI is registered with the content
+ * resolver once, no matter how many screens follow it, and changes are
+ * dispatched to listeners bound to a lifecycle. Listeners are dropped when
+ * their owner is destroyed and the URI is unregistered with its last listener.
+ *
+ * <p>The hub only holds listeners weakly; the owner's lifecycle keeps them
+ * alive. All methods must be called on the main thread.
+ */
+public class SettingsObserverHub {
+
+    public interface Listener {
+        void onSettingChanged(Uri uri);
+    }
+
+    private static SettingsObserverHub sInstance;
+
+    private final ContentResolver mResolver;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<Uri, UriObserver> mObservers = new HashMap<>();
+
+    public static synchronized SettingsObserverHub getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SettingsObserverHub(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private SettingsObserverHub(Context context) {
+        mResolver = context.getContentResolver();
+    }
+
+    /**
+     * Calls {@code listener} whenever {@code uri} changes until {@code owner}
+     * is destroyed.
+     */
+    public void observe(LifecycleOwner owner, Uri uri, Listener listener) {
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        UriObserver observer = mObservers.get(uri);
+        if (observer == null) {
+            observer = new UriObserver(uri);
+            mObservers.put(uri, observer);
+            mResolver.registerContentObserver(uri, false, observer, UserHandle.USER_ALL);
+        }
+        observer.mListeners.add(new WeakReference<>(listener));
+        lifecycle.addObserver(new Binding(uri, listener));
+    }
+
+    public void remove(Uri uri, Listener listener) {
+        UriObserver observer = mObservers.get(uri);
+        if (observer == null) {
+            return;
+        }
+        Iterator<WeakReference<Listener>> it = observer.mListeners.iterator();
+        while (it.hasNext()) {
+            Listener l = it.next().get();
+            if (l == null || l == listener) {
+                it.remove();
+            }
+        }
+        unregisterIfUnused(observer);
+    }
+
+    /**
+     * @return how many URIs are currently registered with the content resolver
+     */
+    public int getObserverCount() {
+        return mObservers.size();
+    }
+
+    /**
+     * @return how many listeners are attached to {@code uri}
+     */
+    public int getListenerCount(Uri uri) {
+        UriObserver observer = mObservers.get(uri);
+        return observer != null ? observer.mListeners.size() : 0;
+    }
+
+    private void unregisterIfUnused(UriObserver observer) {
+        if (observer.mListeners.isEmpty()) {
+            mObservers.remove(observer.mUri);
+            mResolver.unregisterContentObserver(observer);
+        }
+    }
+
+    private class UriObserver extends ContentObserver {
+        final Uri mUri;
+        final List<WeakReference<Listener>> mListeners = new ArrayList<>();
+
+        UriObserver(Uri uri) {
+            super(mHandler);
+            mUri = uri;
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            List<Listener> live = new ArrayList<>(mListeners.size());
+            Iterator<WeakReference<Listener>> it = mListeners.iterator();
+            while (it.hasNext()) {
+                Listener listener = it.next().get();
+                if (listener == null) {
+                    it.remove();
+                } else {
+                    live.add(listener);
+                }
+            }
+            unregisterIfUnused(this);
+            for (Listener listener : live) {
+                listener.onSettingChanged(mUri);
+            }
+        }
+    }
+
+    private class Binding implements LifecycleObserver {
+        private final Uri mUri;
+        // Strong reference, ties the listener's lifetime to the owner
+        private final Listener mListener;
+
+        Binding(Uri uri, Listener listener) {
+            mUri = uri;
+            mListener = listener;
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        void onDestroy(LifecycleOwner owner) {
+            owner.getLifecycle().removeObserver(this);
+            remove(mUri, mListener);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.UserHandle;
+import android.provider.Settings;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory copy of the settings a fragment declares up front. All declared
+ * keys are read with a single provider query, getters are served from memory
+ * and a change re-reads only the key that changed.
+ */
+public class SettingsSnapshot {
+
+    private static final String TAG = "SettingsSnapshot";
+
+    private static final String[] PROJECTION = {
+            Settings.NameValueTable.NAME,
+            Settings.NameValueTable.VALUE,
+    };
+
+    public interface OnSettingChangedListener {
+        void onSettingChanged(String key);
+    }
+
+    private final Context mContext;
+    private final ContentResolver mResolver;
+    private final boolean mSecure;
+    private final Set<String> mKeys;
+    private final Map<String, String> mValues = new HashMap<>();
+
+    public static SettingsSnapshot system(Context context, String... keys) {
+        return new SettingsSnapshot(context, false, keys);
+    }
+
+    public static SettingsSnapshot secure(Context context, String... keys) {
+        return new SettingsSnapshot(context, true, keys);
+    }
+
+    private SettingsSnapshot(Context context, boolean secure, String... keys) {
+        mContext = context;
+        mResolver = context.getContentResolver();
+        mSecure = secure;
+        mKeys = new ArraySet<>(keys.length);
+        for (String key : keys) {
+            mKeys.add(key);
+        }
+        load();
+    }
+
+    private void load() {
+        Cursor cursor = null;
+        try {
+            cursor = mResolver.query(mSecure ? Settings.Secure.CONTENT_URI
+                    : Settings.System.CONTENT_URI, PROJECTION, null, null, null);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Bulk settings query failed", e);
+        }
+        if (cursor == null) {
+            for (String key : mKeys) {
+                mValues.put(key, read(key));
+            }
+            return;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(0);
+                if (mKeys.contains(name)) {
+                    mValues.put(name, cursor.getString(1));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private String read(String key) {
+        return mSecure
+                ? Settings.Secure.getStringForUser(mResolver, key, UserHandle.USER_CURRENT)
+                : Settings.System.getStringForUser(mResolver, key, UserHandle.USER_CURRENT);
+    }
+
+    private Uri getUriFor(String key) {
+        return mSecure ? Settings.Secure.getUriFor(key) : Settings.System.getUriFor(key);
+    }
+
+    /**
+     * Follows changes of the declared keys until {@code owner} is destroyed.
+     *
+     * @param listener called on the main thread after a key was refreshed, may be null
+     */
+    public void startObserving(LifecycleOwner owner, OnSettingChangedListener listener) {
+        SettingsObserverHub hub = SettingsObserverHub.getInstance(mContext);
+        SettingsObserverHub.Listener hubListener = uri -> {
+            String key = uri.getLastPathSegment();
+            mValues.put(key, read(key));
+            if (listener != null) {
+                listener.onSettingChanged(key);
+            }
+        };
+        for (String key : mKeys) {
+            hub.observe(owner, getUriFor(key), hubListener);
+        }
+    }
+
+    public String getString(String key) {
+        checkDeclared(key);
+        return mValues.get(key);
+    }
+
+    public int getInt(String key, int def) {
+        String value = getString(key);
+        if (value == null) {
+            return def;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean def) {
+        return getInt(key, def ? 1 : 0) != 0;
+    }
+
+    /**
+     * Writes through to the provider and updates the snapshot right away, so
+     * reads following the write do not wait for the observer.
+     */
+    public void putInt(String key, int value) {
+        putString(key, Integer.toString(value));
+    }
+
+    public void putString(String key, String value) {
+        checkDeclared(key);
+        mValues.put(key, value);
+        if (mSecure) {
+            Settings.Secure.putStringForUser(mResolver, key, value, UserHandle.USER_CURRENT);
+        } else {
+            Settings.System.putStringForUser(mResolver, key, value, UserHandle.USER_CURRENT);
+        }
+    }
+
+    private void checkDeclared(String key) {
+        if (!mKeys.contains(key)) {
+            throw new IllegalArgumentException(key + " was not declared in this snapshot");
+        }
+    }
+}
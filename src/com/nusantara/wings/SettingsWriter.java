@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.provider.Settings;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write-behind for Settings.System values that change continuously, like
+ * sliders and color pickers. Only the latest value per key is kept and written
+ * once the key has been quiet for {@link #FLUSH_DELAY_MS}, or earlier when
+ * {@link #flush()} is called on drag end and from onPause.
+ */
+public class SettingsWriter {
+
+    private static final String TAG = "SettingsWriter";
+
+    private static final long FLUSH_DELAY_MS = 300;
+
+    private final ContentResolver mResolver;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Integer> mPending = new LinkedHashMap<>();
+    private final Runnable mFlushRunnable = this::flush;
+
+    private int mCollapsedWrites;
+
+    public SettingsWriter(Context context) {
+        mResolver = context.getContentResolver();
+    }
+
+    /**
+     * Queues {@code value} for {@code key}, replacing a value not written yet.
+     * Must be called on the main thread.
+     */
+    public void putInt(String key, int value) {
+        if (mPending.put(key, value) != null) {
+            mCollapsedWrites++;
+        }
+        mHandler.removeCallbacks(mFlushRunnable);
+        mHandler.postDelayed(mFlushRunnable, FLUSH_DELAY_MS);
+    }
+
+    /**
+     * Writes every queued value now.
+     */
+    public void flush() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        if (mPending.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : mPending.entrySet()) {
+            Settings.System.putIntForUser(mResolver, entry.getKey(), entry.getValue(),
+                    UserHandle.USER_CURRENT);
+        }
+        if (Build.IS_DEBUGGABLE) {
+            Log.d(TAG, "Wrote " + mPending.size() + " settings, " + mCollapsedWrites
+                    + " writes collapsed so far");
+        }
+        mPending.clear();
+    }
+
+    /**
+     * @return how many queued values were replaced before reaching the provider
+     */
+    public int getCollapsedWrites() {
+        return mCollapsedWrites;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import androidx.preference.Preference;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.nusantara.wings.preferences.CategoryPreference;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recycled view pool shared by the Wings tabs. A PreferenceGroupAdapter
+ * numbers its view types in the order it meets them, so the pool hands out
+ * its own view types, one per preference class and layout, which mean the
+ * same row in every tab. Category rows get room for a whole tab.
+ */
+class SharedRowPool extends RecyclerView.RecycledViewPool {
+
+    private final Map<String, Integer> mViewTypes = new HashMap<>();
+    private final int mCategoryRows;
+    private int mInflations;
+
+    SharedRowPool(int categoryRows) {
+        mCategoryRows = categoryRows;
+    }
+
+    /**
+     * @return the view type of {@code preference}'s row, the same for all tabs
+     */
+    int getViewType(Preference preference) {
+        String key = preference.getClass().getName() + ":" + preference.getLayoutResource()
+                + ":" + preference.getWidgetLayoutResource();
+        Integer viewType = mViewTypes.get(key);
+        if (viewType == null) {
+            viewType = mViewTypes.size();
+            mViewTypes.put(key, viewType);
+            if (preference instanceof CategoryPreference) {
+                setMaxRecycledViews(viewType, mCategoryRows);
+            }
+        }
+        return viewType;
+    }
+
+    void onRowInflated() {
+        mInflations++;
+    }
+
+    /**
+     * @return rows inflated since the last call
+     */
+    int takeInflationCount() {
+        int count = mInflations;
+        mInflations = 0;
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Directory of PNG thumbnails shared by the icon caches. Every file is read
+ * and written under its own lock and written through a temporary file, so
+ * two loads of the same thumbnail never interleave and a reader never sees
+ * a partial file. All calls touch the disk, keep them off the main thread.
+ */
+public class ThumbnailDiskStore {
+
+    private static final String TAG = "ThumbnailDiskStore";
+
+    private static final String SUFFIX = ".png";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int LOCK_STRIPES = 32;
+
+    private final File mDir;
+    private final int mMaxFiles;
+    private final Object[] mLocks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param maxFiles oldest files are dropped beyond this, 0 keeps all
+     */
+    public ThumbnailDiskStore(File dir, int maxFiles) {
+        mDir = dir;
+        mMaxFiles = maxFiles;
+        for (int i = 0; i < mLocks.length; i++) {
+            mLocks[i] = new Object();
+        }
+    }
+
+    public File getDir() {
+        return mDir;
+    }
+
+    /**
+     * @return the stored thumbnail, or null if there is none
+     */
+    public Bitmap get(String name) {
+        File file = getFile(name);
+        synchronized (getLock(name)) {
+            return file.exists() ? BitmapFactory.decodeFile(file.getPath()) : null;
+        }
+    }
+
+    public void put(String name, Bitmap bitmap) {
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            return;
+        }
+        File file = getFile(name);
+        File temp = new File(mDir, name + TEMP_SUFFIX);
+        synchronized (getLock(name)) {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not store " + name, e);
+                temp.delete();
+                return;
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        }
+        trim();
+    }
+
+    /**
+     * Deletes every thumbnail whose name starts with {@code prefix}.
+     */
+    public void deleteAll(String prefix) {
+        File[] files = mDir.listFiles((dir, name) -> name.startsWith(prefix)
+                && name.endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                delete(file);
+            }
+        }
+    }
+
+    private void trim() {
+        if (mMaxFiles <= 0) {
+            return;
+        }
+        File[] files = mDir.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null || files.length <= mMaxFiles) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - mMaxFiles; i++) {
+            delete(files[i]);
+        }
+    }
+
+    private void delete(File file) {
+        String name = file.getName();
+        synchronized (getLock(name.substring(0, name.length() - SUFFIX.length()))) {
+            file.delete();
+        }
+    }
+
+    private File getFile(String name) {
+        return new File(mDir, name + SUFFIX);
+    }
+
+    private Object getLock(String name) {
+        return mLocks[(name.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+}
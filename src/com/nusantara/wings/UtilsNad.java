@@ -18,15 +18,11 @@ package com.nusantara.wings;
 
 import android.app.AlertDialog;
 import android.app.ActivityManager;
-import android.app.IActivityManager;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.RemoteException;
 import android.os.SystemProperties;
-import android.content.Intent;
-import android.content.ComponentName;
 
 import java.util.Objects;
 
@@ -66,89 +62,11 @@ public class UtilsNad {
     }
 
     public static void restartSettings(Context context) {
-        new restartSettingsTask(context).execute();
+        RestartCoordinator.getInstance(context).requestRestart("com.android.settings");
     }
 
     public static void restartSystemUi(Context context) {
-        new restartSystemUiTask(context).execute();
-    }
-
-    private static class restartSettingsTask extends AsyncTask<Void, Void, Void> {
-        private Context mContext;
-
-        public restartSettingsTask(Context context) {
-            super();
-            mContext = context;
-        }
-
-        @Override
-        protected Void doInBackground(Void... params) {
-            try {
-                ActivityManager am =
-                        (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
-                IActivityManager ams = ActivityManager.getService();
-                for (ActivityManager.RunningAppProcessInfo app: am.getRunningAppProcesses()) {
-                    if ("com.android.settings".equals(app.processName)) {
-                    	ams.killApplicationProcess(app.processName, app.uid);
-                        break;
-                    }
-                }
-                //Class ActivityManagerNative = Class.forName("android.app.ActivityManagerNative");
-                //Method getDefault = ActivityManagerNative.getDeclaredMethod("getDefault", null);
-                //Object amn = getDefault.invoke(null, null);
-                //Method killApplicationProcess = amn.getClass().getDeclaredMethod("killApplicationProcess", String.class, int.class);
-                //mContext.stopService(new Intent().setComponent(new ComponentName("com.android.systemui", "com.android.systemui.SystemUIService")));
-                //am.killBackgroundProcesses("com.android.systemui");
-                //for (ActivityManager.RunningAppProcessInfo app : am.getRunningAppProcesses()) {
-                //    if ("com.android.systemui".equals(app.processName)) {
-                //        killApplicationProcess.invoke(amn, app.processName, app.uid);
-                //        break;
-                //    }
-                //}
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return null;
-        }
-    }
-
-    private static class restartSystemUiTask extends AsyncTask<Void, Void, Void> {
-        private Context mContext;
-
-        public restartSystemUiTask(Context context) {
-            super();
-            mContext = context;
-        }
-
-        @Override
-        protected Void doInBackground(Void... params) {
-            try {
-                ActivityManager am =
-                        (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
-                IActivityManager ams = ActivityManager.getService();
-                for (ActivityManager.RunningAppProcessInfo app: am.getRunningAppProcesses()) {
-                    if ("com.android.systemui".equals(app.processName)) {
-                        ams.killApplicationProcess(app.processName, app.uid);
-                        break;
-                    }
-                }
-                //Class ActivityManagerNative = Class.forName("android.app.ActivityManagerNative");
-                //Method getDefault = ActivityManagerNative.getDeclaredMethod("getDefault", null);
-                //Object amn = getDefault.invoke(null, null);
-                //Method killApplicationProcess = amn.getClass().getDeclaredMethod("killApplicationProcess", String.class, int.class);
-                //mContext.stopService(new Intent().setComponent(new ComponentName("com.android.systemui", "com.android.systemui.SystemUIService")));
-                //am.killBackgroundProcesses("com.android.systemui");
-                //for (ActivityManager.RunningAppProcessInfo app : am.getRunningAppProcesses()) {
-                //    if ("com.android.systemui".equals(app.processName)) {
-                //        killApplicationProcess.invoke(amn, app.processName, app.uid);
-                //        break;
-                //    }
-                //}
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return null;
-        }
+        RestartCoordinator.getInstance(context).requestRestart("com.android.systemui");
     }
 
     public static boolean isBlurSupported() {
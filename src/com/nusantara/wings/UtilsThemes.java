@@ -18,7 +18,6 @@ package com.nusantara.wings;
 
 import static android.os.UserHandle.USER_SYSTEM;
 
-import android.app.UiModeManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.om.IOverlayManager;
@@ -29,12 +28,8 @@ import android.provider.Settings;
 import android.util.TypedValue;
 import android.os.RemoteException;
 
-import java.util.Objects;
-
 import com.android.settings.R;
 
-import com.android.internal.util.nad.NadUtils;
-
 public class UtilsThemes {
 
     public static int getThemeAccentColor(final Context context) {
@@ -51,23 +46,9 @@ public class UtilsThemes {
         }
     }
 
-    public static void handleBackgrounds(Boolean state, Context context, int mode, String[] overlays, IOverlayManager mOverlayManager) {
-        if (context != null) {
-            Objects.requireNonNull(context.getSystemService(UiModeManager.class))
-                    .setNightMode(mode);
-        }
-        for (int i = 0; i < overlays.length; i++) {
-            String background = overlays[i];
-            try {
-                mOverlayManager.setEnabled(background, state, USER_SYSTEM);
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
     public static boolean threeButtonNavbarEnabled(Context context) {
-        boolean defaultToNavigationBar = NadUtils.deviceSupportNavigationBar(context);
+        boolean defaultToNavigationBar =
+                DeviceCapabilities.get(context).isNavigationBarSupported();
         boolean navigationBar = Settings.System.getInt(context.getContentResolver(),
                 Settings.System.FORCE_SHOW_NAVBAR, defaultToNavigationBar ? 1 : 0) == 1;
         boolean hasNavbar = (context.getResources().getInteger(
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings;
+
+import android.os.Bundle;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.fragment.app.Fragment;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceGroupAdapter;
+import androidx.preference.PreferenceScreen;
+import androidx.preference.PreferenceViewHolder;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.android.settings.SettingsPreferenceFragment;
+
+import java.util.List;
+
+/**
+ * Base of the fragments shown as tabs of {@link NusantaraWings}. Their lists
+ * draw rows from the pool of the hosting fragment and give them back when
+ * the tab goes away, so switching tabs rebinds rows instead of inflating.
+ */
+public abstract class WingsTabFragment extends SettingsPreferenceFragment {
+
+    @Override
+    public RecyclerView onCreateRecyclerView(LayoutInflater inflater, ViewGroup parent,
+            Bundle savedInstanceState) {
+        RecyclerView recyclerView = super.onCreateRecyclerView(inflater, parent,
+                savedInstanceState);
+        SharedRowPool pool = getRowPool();
+        if (pool != null) {
+            recyclerView.setRecycledViewPool(pool);
+        }
+        return recyclerView;
+    }
+
+    @Override
+    public RecyclerView.LayoutManager onCreateLayoutManager() {
+        RecyclerView.LayoutManager layoutManager = super.onCreateLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            // Rows of a destroyed tab go back to the shared pool
+            ((LinearLayoutManager) layoutManager).setRecycleChildrenOnDetach(true);
+        }
+        return layoutManager;
+    }
+
+    @Override
+    protected RecyclerView.Adapter onCreateAdapter(PreferenceScreen preferenceScreen) {
+        // Keeps the Settings adapter, and with it search result highlighting
+        RecyclerView.Adapter adapter = super.onCreateAdapter(preferenceScreen);
+        SharedRowPool pool = getRowPool();
+        if (pool == null || !(adapter instanceof PreferenceGroupAdapter)) {
+            return adapter;
+        }
+        return new SharedPoolAdapter((PreferenceGroupAdapter) adapter, pool);
+    }
+
+    private SharedRowPool getRowPool() {
+        Fragment parent = getParentFragment();
+        return parent instanceof NusantaraWings ? ((NusantaraWings) parent).getRowPool() : null;
+    }
+
+    /**
+     * Hands out the pool's view types for the rows of a wrapped adapter and
+     * forwards everything else to it.
+     */
+    private static class SharedPoolAdapter extends RecyclerView.Adapter<PreferenceViewHolder>
+            implements PreferenceGroup.PreferencePositionCallback {
+
+        private final PreferenceGroupAdapter mAdapter;
+        private final SharedRowPool mPool;
+        // Pool view type to the one the wrapped adapter inflates from
+        private final SparseIntArray mLocalViewTypes = new SparseIntArray();
+
+        SharedPoolAdapter(PreferenceGroupAdapter adapter, SharedRowPool pool) {
+            mAdapter = adapter;
+            mPool = pool;
+            setHasStableIds(adapter.hasStableIds());
+            adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onChanged() {
+                    notifyDataSetChanged();
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    notifyItemRangeChanged(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount,
+                        Object payload) {
+                    notifyItemRangeChanged(positionStart, itemCount, payload);
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    notifyItemRangeInserted(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeRemoved(int positionStart, int itemCount) {
+                    notifyItemRangeRemoved(positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                    for (int i = 0; i < itemCount; i++) {
+                        notifyItemMoved(fromPosition + i, toPosition + i);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public int getItemCount() {
+            return mAdapter.getItemCount();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mAdapter.getItemId(position);
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            int localViewType = mAdapter.getItemViewType(position);
+            int viewType = mPool.getViewType(mAdapter.getItem(position));
+            mLocalViewTypes.put(viewType, localViewType);
+            return viewType;
+        }
+
+        @Override
+        public PreferenceViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            mPool.onRowInflated();
+            return mAdapter.onCreateViewHolder(parent, mLocalViewTypes.get(viewType));
+        }
+
+        @Override
+        public void onBindViewHolder(PreferenceViewHolder holder, int position) {
+            mAdapter.onBindViewHolder(holder, position);
+        }
+
+        @Override
+        public void onBindViewHolder(PreferenceViewHolder holder, int position,
+                List<Object> payloads) {
+            mAdapter.onBindViewHolder(holder, position, payloads);
+        }
+
+        @Override
+        public void onViewRecycled(PreferenceViewHolder holder) {
+            mAdapter.onViewRecycled(holder);
+        }
+
+        @Override
+        public int getPreferenceAdapterPosition(String key) {
+            return mAdapter.getPreferenceAdapterPosition(key);
+        }
+
+        @Override
+        public int getPreferenceAdapterPosition(Preference preference) {
+            return mAdapter.getPreferenceAdapterPosition(preference);
+        }
+    }
+}
@@ -38,6 +38,8 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
 
     private int currentActiveItemPosition = 0;
     private boolean loadPreviousState;
+    //true while the items are drawn from a scroll offset instead of animating
+    private boolean scrollDriven;
 
     //default display mode
     private DisplayMode displayMode = DisplayMode.SPREAD;
@@ -78,6 +80,9 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
             state = bundle.getParcelable("superState");
         }
         super.onRestoreInstanceState(state);
+        //the items were set up at inflation, apply the restored position
+        if (loadPreviousState)
+            setInitialActiveState();
     }
 
     /////////////////////////////////////////
@@ -104,13 +109,21 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
         //sets appropriate display node
         if (mode >= 0 && mode < DisplayMode.values().length)
             displayMode = DisplayMode.values()[mode];
+    }
 
-        post(new Runnable() {
-            @Override
-            public void run() {
-                updateChildNavItems();
-            }
-        });
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+        //set up the items before the first measure, so it is the only one
+        updateChildNavItems();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        //fit the items before they are measured, so no layout is requested during layout
+        if (bubbleNavItems != null && MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED)
+            updateMeasurementForItems(MeasureSpec.getSize(widthMeasureSpec));
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
     }
 
     /**
@@ -155,7 +168,6 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
 
         setClickListenerForItems();
         setInitialActiveState();
-        updateMeasurementForItems();
         createChains();
     }
 
@@ -219,11 +231,13 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
 
     /**
      * Update the measurements of the child components {@link #bubbleNavItems}
+     *
+     * @param width width this view is being measured with
      */
-    private void updateMeasurementForItems() {
+    private void updateMeasurementForItems(int width) {
         int numChildElements = bubbleNavItems.size();
         if (numChildElements > 0) {
-            int calculatedEachItemWidth = (getMeasuredWidth() - (getPaddingRight() + getPaddingLeft())) / numChildElements;
+            int calculatedEachItemWidth = (width - (getPaddingRight() + getPaddingLeft())) / numChildElements;
             for (BubbleToggleView btv : bubbleNavItems)
                 btv.updateMeasurements(calculatedEachItemWidth);
         }
@@ -292,8 +306,47 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
         if (position < 0 || position >= bubbleNavItems.size())
             return;
 
-        BubbleToggleView btv = bubbleNavItems.get(position);
-        btv.performClick();
+        changeActiveItem(position, !scrollDriven);
+    }
+
+    /**
+     * Draws the items for a scroll between {@code position} and the next
+     * item, the outgoing item collapses as the incoming one expands. Does not
+     * change the active item, see {@link #setCurrentActiveItem(int)}.
+     *
+     * @param position       position of the first visible page
+     * @param positionOffset offset from 0 to 1 towards the next page
+     */
+    public void setScrollPosition(int position, float positionOffset) {
+        if (bubbleNavItems == null) return;
+
+        scrollDriven = positionOffset > 0.0f;
+        for (int i = 0; i < bubbleNavItems.size(); i++) {
+            float progress = 0.0f;
+            if (i == position)
+                progress = 1.0f - positionOffset;
+            else if (i == position + 1)
+                progress = positionOffset;
+            bubbleNavItems.get(i).setProgress(progress);
+        }
+    }
+
+    /**
+     * Moves the active state from the current item to {@code position}
+     *
+     * @param position new active position
+     * @param animate  whether the items animate, or are drawn by a scroll
+     */
+    private void changeActiveItem(int position, boolean animate) {
+        BubbleToggleView currentActiveToggleView = bubbleNavItems.get(currentActiveItemPosition);
+        BubbleToggleView newActiveToggleView = bubbleNavItems.get(position);
+        if (currentActiveToggleView != null)
+            currentActiveToggleView.setActive(false, animate);
+        if (newActiveToggleView != null)
+            newActiveToggleView.setActive(true, animate);
+
+        //changed the current active position
+        currentActiveItemPosition = position;
     }
 
     @Override
@@ -303,15 +356,7 @@ public class BubbleNavigationConstraintView extends ConstraintLayout implements
             if (changedPosition == currentActiveItemPosition) {
                 return;
             }
-            BubbleToggleView currentActiveToggleView = bubbleNavItems.get(currentActiveItemPosition);
-            BubbleToggleView newActiveToggleView = bubbleNavItems.get(changedPosition);
-            if (currentActiveToggleView != null)
-                currentActiveToggleView.toggle();
-            if (newActiveToggleView != null)
-                newActiveToggleView.toggle();
-
-            //changed the current active position
-            currentActiveItemPosition = changedPosition;
+            changeActiveItem(changedPosition, true);
 
             if (navigationChangeListener != null)
                 navigationChangeListener.onNavigationChanged(v, currentActiveItemPosition);
@@ -1,8 +1,10 @@
 package com.nusantara.wings.bottomnav;
 
+import android.animation.ArgbEvaluator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Outline;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.TransitionDrawable;
 import android.os.Parcel;
@@ -19,6 +21,7 @@ import android.view.Gravity;
 
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
@@ -33,6 +36,18 @@ import com.android.settings.R;
 public class BubbleToggleView extends RelativeLayout {
 
     private static final int DEFAULT_ANIM_DURATION = 300;
+    private static final ArgbEvaluator COLOR_EVALUATOR = new ArgbEvaluator();
+
+    /**
+     * Animates the title width, every frame lays out the navigation bar
+     */
+    public static final int ANIMATION_MODE_RESIZE = 0;
+    /**
+     * Keeps the item at its expanded size and reveals the title with an
+     * outline clip and translation, frames only redraw
+     */
+    public static final int ANIMATION_MODE_REVEAL = 1;
+
     private int mLayoutDirection = ViewCompat.LAYOUT_DIRECTION_LTR;
 
     private BubbleToggleItem bubbleToggleItem;
@@ -44,6 +59,11 @@ public class BubbleToggleView extends RelativeLayout {
 
     private int animationDuration;
     private boolean showShapeAlways;
+    private int animationMode = ANIMATION_MODE_RESIZE;
+
+    // Reused for every toggle, runs from the current progress to the target
+    private ValueAnimator animator;
+    private float progress;
 
     private float maxTitleWidth;
     private float measuredTitleWidth;
@@ -200,6 +220,7 @@ public class BubbleToggleView extends RelativeLayout {
                 animationDuration = ta.getInteger(R.styleable.BubbleToggleView_nad_duration, DEFAULT_ANIM_DURATION);
                 internalPadding = (int) ta.getDimension(R.styleable.BubbleToggleView_nad_padding, internalPadding);
                 titlePadding = (int) ta.getDimension(R.styleable.BubbleToggleView_nad_titlePadding, titlePadding);
+                animationMode = ta.getInt(R.styleable.BubbleToggleView_nad_animationMode, animationMode);
             } finally {
                 ta.recycle();
             }
@@ -213,6 +234,15 @@ public class BubbleToggleView extends RelativeLayout {
         if (shape == null)
             shape = ContextCompat.getDrawable(context, R.drawable.transition_background_drawable);
 
+        //the reveal mode fades the active shape itself, so it can follow any
+        //progress, keep that from other items using it
+        if (animationMode == ANIMATION_MODE_REVEAL) {
+            if (shape instanceof TransitionDrawable
+                    && ((TransitionDrawable) shape).getNumberOfLayers() > 1)
+                shape = ((TransitionDrawable) shape).getDrawable(1);
+            shape = shape.mutate();
+        }
+
         //create a default bubble item
         bubbleToggleItem = new BubbleToggleItem();
         bubbleToggleItem.setIcon(icon);
@@ -238,20 +268,96 @@ public class BubbleToggleView extends RelativeLayout {
                 bubbleToggleItem.getInternalPadding(),
                 bubbleToggleItem.getInternalPadding(),
                 bubbleToggleItem.getInternalPadding());
-        post(new Runnable() {
+
+        createBubbleItemView(context);
+        createAnimator();
+        setInitialState(isActive);
+    }
+
+    /**
+     * Create the single {@link #animator} used for all toggles
+     */
+    private void createAnimator() {
+        animator = ValueAnimator.ofFloat(0f, 1f);
+        animator.setDuration(animationDuration);
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
-            public void run() {
-                //make sure the padding is added
-                setPadding(
-                        bubbleToggleItem.getInternalPadding(),
-                        bubbleToggleItem.getInternalPadding(),
-                        bubbleToggleItem.getInternalPadding(),
-                        bubbleToggleItem.getInternalPadding());
+            public void onAnimationUpdate(ValueAnimator animation) {
+                applyProgress((float) animation.getAnimatedValue());
             }
         });
 
-        createBubbleItemView(context);
-        setInitialState(isActive);
+        if (animationMode == ANIMATION_MODE_REVEAL) {
+            setOutlineProvider(new ViewOutlineProvider() {
+                @Override
+                public void getOutline(View view, Outline outline) {
+                    int inset = (int) getCollapsedInset();
+                    outline.setRoundRect(inset, 0, view.getWidth() - inset, view.getHeight(),
+                            view.getHeight() / 2f);
+                }
+            });
+            setClipToOutline(true);
+        }
+    }
+
+    /**
+     * @return how far each side of the item is hidden at the current progress
+     */
+    private float getCollapsedInset() {
+        return (1f - progress) * measuredTitleWidth / 2f;
+    }
+
+    private void animateProgressTo(float target) {
+        animator.cancel();
+        animator.setFloatValues(progress, target);
+        animator.start();
+    }
+
+    /**
+     * Draws the item at {@code value} between inactive (0) and active (1)
+     */
+    private void applyProgress(float value) {
+        applyProgress(value, true);
+    }
+
+    /**
+     * @param requestLayout false while the parent is measuring, the new title
+     *                      width is then picked up by that measure pass
+     */
+    private void applyProgress(float value, boolean requestLayout) {
+        progress = value;
+        ViewUtils.updateDrawableColor(iconView.getDrawable(), (int) COLOR_EVALUATOR.evaluate(value,
+                bubbleToggleItem.getColorInactive(), bubbleToggleItem.getColorActive()));
+        if (animationMode == ANIMATION_MODE_RESIZE) {
+            titleView.setVisibility(value > 0.0f ? VISIBLE : GONE);
+            setTitleWidth((int) (measuredTitleWidth * value), requestLayout);
+            return;
+        }
+
+        //shift the content so the icon stays centered in the visible part
+        float inset = getCollapsedInset();
+        float shift = isRtl() ? -inset : inset;
+        iconView.setTranslationX(shift);
+        titleView.setTranslationX(shift);
+        titleView.setAlpha(value);
+        invalidateOutline();
+
+        Drawable background = getBackground();
+        if (background != null && !(background instanceof TransitionDrawable) && !showShapeAlways)
+            background.setAlpha((int) (255 * value));
+    }
+
+    /**
+     * Sets the title width through its layout params, so a change made while
+     * the parent is measuring does not request another layout
+     */
+    private void setTitleWidth(int width, boolean requestLayout) {
+        ViewGroup.LayoutParams lp = titleView.getLayoutParams();
+        if (lp.width == width)
+            return;
+        lp.width = width;
+        if (requestLayout)
+            titleView.requestLayout();
     }
 
     /**
@@ -280,19 +386,25 @@ public class BubbleToggleView extends RelativeLayout {
         titleView.setTextColor(bubbleToggleItem.getColorActive());
         titleView.setText(bubbleToggleItem.getTitle());
         titleView.setTextSize(TypedValue.COMPLEX_UNIT_PX, bubbleToggleItem.getTitleSize());
+        //same typeface the titles were prefetched with
+        titleView.setTypeface(TitleWidthCache.getTitleTypeface(context));
         //get the current measured title width
         titleView.setVisibility(VISIBLE);
         //update the margin of the text view
         titleView.setPadding(bubbleToggleItem.getTitlePadding(), 0, bubbleToggleItem.getTitlePadding(), 0);
-        //measure the content width
-        titleView.measure(0, 0);       //must call measure!
-        measuredTitleWidth = titleView.getMeasuredWidth();  //get width
+        //get the content width from the shared cache instead of measuring the view
+        measuredTitleWidth = (float) Math.ceil(TitleWidthCache.getWidth(
+                bubbleToggleItem.getTitle(), titleView.getTextSize(), titleView.getTypeface()))
+                + titleView.getPaddingLeft() + titleView.getPaddingRight();
         //limit measured width, based on the max width
         if (measuredTitleWidth > maxTitleWidth)
             measuredTitleWidth = maxTitleWidth;
 
-        //change the visibility
-        titleView.setVisibility(GONE);
+        //change the visibility, a revealed title keeps its size and is clipped instead
+        if (animationMode == ANIMATION_MODE_REVEAL)
+            lpTitle.width = (int) measuredTitleWidth;
+        else
+            titleView.setVisibility(GONE);
 
         addView(iconView);
         addView(titleView);
@@ -314,10 +426,14 @@ public class BubbleToggleView extends RelativeLayout {
         //set the background
         setBackground(bubbleToggleItem.getShape());
 
+        if (animator != null)
+            animator.cancel();
+
         if (isActive) {
             ViewUtils.updateDrawableColor(iconView.getDrawable(), bubbleToggleItem.getColorActive());
             this.isActive = true;
-            titleView.setVisibility(VISIBLE);
+            if (animationMode == ANIMATION_MODE_RESIZE)
+                titleView.setVisibility(VISIBLE);
             if (getBackground() instanceof TransitionDrawable) {
                 TransitionDrawable trans = (TransitionDrawable) getBackground();
                 trans.startTransition(0);
@@ -328,16 +444,24 @@ public class BubbleToggleView extends RelativeLayout {
         } else {
             ViewUtils.updateDrawableColor(iconView.getDrawable(), bubbleToggleItem.getColorInactive());
             this.isActive = false;
-            titleView.setVisibility(GONE);
+            if (animationMode == ANIMATION_MODE_RESIZE)
+                titleView.setVisibility(GONE);
             if (!showShapeAlways) {
                 if (!(getBackground() instanceof TransitionDrawable)) {
-                    setBackground(null);
+                    //the reveal mode fades the shape instead of removing it
+                    if (animationMode == ANIMATION_MODE_RESIZE)
+                        setBackground(null);
                 } else {
                     TransitionDrawable trans = (TransitionDrawable) getBackground();
                     trans.resetTransition();
                 }
             }
         }
+
+        if (animationMode == ANIMATION_MODE_REVEAL)
+            applyProgress(isActive ? 1f : 0f);
+        else
+            progress = isActive ? 1f : 0f;
     }
 
     /**
@@ -356,21 +480,9 @@ public class BubbleToggleView extends RelativeLayout {
     public void activate() {
         ViewUtils.updateDrawableColor(iconView.getDrawable(), bubbleToggleItem.getColorActive());
         isActive = true;
-        titleView.setVisibility(VISIBLE);
-        ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
-        animator.setDuration(animationDuration);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float value = (float) animation.getAnimatedValue();
-                titleView.setWidth((int) (measuredTitleWidth * value));
-                //end of animation
-                if (value >= 1.0f) {
-                    //do something
-                }
-            }
-        });
-        animator.start();
+        if (animationMode == ANIMATION_MODE_RESIZE)
+            titleView.setVisibility(VISIBLE);
+        animateProgressTo(1f);
 
         if (getBackground() instanceof TransitionDrawable) {
             TransitionDrawable trans = (TransitionDrawable) getBackground();
@@ -379,7 +491,8 @@ public class BubbleToggleView extends RelativeLayout {
             //if not showing Shape Always and valid shape color present, use that as tint
             if (!showShapeAlways && bubbleToggleItem.getShapeColor() != Integer.MIN_VALUE)
                 ViewUtils.updateDrawableColor(bubbleToggleItem.getShape(), bubbleToggleItem.getShapeColor());
-            setBackground(bubbleToggleItem.getShape());
+            if (animationMode == ANIMATION_MODE_RESIZE)
+                setBackground(bubbleToggleItem.getShape());
         }
     }
 
@@ -389,25 +502,55 @@ public class BubbleToggleView extends RelativeLayout {
     public void deactivate() {
         ViewUtils.updateDrawableColor(iconView.getDrawable(), bubbleToggleItem.getColorInactive());
         isActive = false;
-        ValueAnimator animator = ValueAnimator.ofFloat(1f, 0f);
-        animator.setDuration(animationDuration);
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float value = (float) animation.getAnimatedValue();
-                titleView.setWidth((int) (measuredTitleWidth * value));
-                //end of animation
-                if (value <= 0.0f)
-                    titleView.setVisibility(GONE);
-            }
-        });
-        animator.start();
+        animateProgressTo(0f);
 
         if (getBackground() instanceof TransitionDrawable) {
             TransitionDrawable trans = (TransitionDrawable) getBackground();
             trans.reverseTransition(animationDuration);
         } else {
-            if (!showShapeAlways) setBackground(null);
+            if (!showShapeAlways && animationMode == ANIMATION_MODE_RESIZE) setBackground(null);
+        }
+    }
+
+    /**
+     * Draws the item at {@code value} between inactive (0) and active (1),
+     * stopping a running toggle animation. Used to follow a scroll gesture;
+     * the active state itself is changed with {@link #setActive}.
+     *
+     * @param value progress from 0 to 1
+     */
+    public void setProgress(float value) {
+        if (value == progress && !animator.isRunning())
+            return;
+        animator.cancel();
+        applyProgress(value);
+    }
+
+    /**
+     * Changes the active state
+     *
+     * @param active  new state
+     * @param animate whether to animate to the new state, or leave the
+     *                drawing to {@link #setProgress}
+     */
+    public void setActive(boolean active, boolean animate) {
+        if (animate) {
+            if (active)
+                activate();
+            else
+                deactivate();
+            return;
+        }
+
+        isActive = active;
+        if (getBackground() instanceof TransitionDrawable) {
+            TransitionDrawable trans = (TransitionDrawable) getBackground();
+            if (active)
+                trans.startTransition(0);
+            else
+                trans.resetTransition();
+        } else if (animationMode == ANIMATION_MODE_RESIZE && !showShapeAlways) {
+            setBackground(active ? bubbleToggleItem.getShape() : null);
         }
     }
 
@@ -421,7 +564,8 @@ public class BubbleToggleView extends RelativeLayout {
     }
 
     /**
-     * Updates the measurements and fits the view
+     * Updates the measurements and fits the view. Called by the parent before
+     * it measures its children, so it does not request another layout.
      *
      * @param maxWidth in pixels
      */
@@ -441,7 +585,10 @@ public class BubbleToggleView extends RelativeLayout {
 
         //if the new calculate title width is less than current one, update the titleView specs
         if (newTitleWidth > 0 && newTitleWidth < measuredTitleWidth) {
-            measuredTitleWidth = titleView.getMeasuredWidth();
+            measuredTitleWidth = newTitleWidth;
+            if (animationMode == ANIMATION_MODE_REVEAL)
+                setTitleWidth(newTitleWidth, false);
+            applyProgress(progress, false);
         }
     }
 }
@@ -0,0 +1,134 @@
+package com.nusantara.wings.bottomnav;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.style.TextAppearanceSpan;
+import android.util.TypedValue;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.android.settings.R;
+
+/**
+ * TitleWidthCache
+ *
+ * Process-wide cache of bubble title text widths keyed by text, text size
+ * and typeface, shared by all {@link BubbleToggleView}s. Widths can be
+ * prefetched on a background thread before the navigation is inflated; a
+ * lookup never waits for a prefetch, a title not measured yet is measured
+ * right away.
+ */
+public final class TitleWidthCache {
+
+    private static final Map<Key, Float> sWidths = new HashMap<>();
+
+    private TitleWidthCache() {
+    }
+
+    /**
+     * Gets the width of {@code text}, measuring it on a miss
+     *
+     * @param text     title text
+     * @param textSize text size in pixels
+     * @param typeface typeface, may be null for the default
+     * @return the text width in pixels, without padding
+     */
+    public static float getWidth(CharSequence text, float textSize, Typeface typeface) {
+        Key key = new Key(text.toString(), textSize, typeface);
+        synchronized (sWidths) {
+            Float width = sWidths.get(key);
+            if (width != null)
+                return width;
+        }
+        return measure(key, text, textSize, typeface);
+    }
+
+    private static float measure(Key key, CharSequence text, float textSize, Typeface typeface) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(textSize);
+        paint.setTypeface(typeface);
+        float width = Layout.getDesiredWidth(text, paint);
+        synchronized (sWidths) {
+            sWidths.put(key, width);
+        }
+        return width;
+    }
+
+    /**
+     * Measures the titles on a background thread, with the default title
+     * size and typeface
+     *
+     * @param context context the navigation is inflated with
+     * @param titles  titles to measure
+     */
+    public static void prefetch(Context context, CharSequence... titles) {
+        final float textSize = context.getResources().getDimension(R.dimen.default_nav_item_text_size);
+        final Typeface typeface = getTitleTypeface(context);
+        final Key[] keys = new Key[titles.length];
+        for (int i = 0; i < titles.length; i++)
+            keys[i] = new Key(titles[i].toString(), textSize, typeface);
+
+        ThreadUtils.postOnBackgroundThread(() -> {
+            for (int i = 0; i < titles.length; i++) {
+                synchronized (sWidths) {
+                    if (sWidths.containsKey(keys[i]))
+                        continue;
+                }
+                measure(keys[i], titles[i], textSize, typeface);
+            }
+        });
+    }
+
+    /**
+     * Resolves the typeface of a title from the theme's small text appearance,
+     * the one a plain {@link android.widget.TextView} gets, without creating a view
+     *
+     * @param context context the navigation is inflated with
+     * @return the typeface titles are drawn and measured with
+     */
+    public static Typeface getTitleTypeface(Context context) {
+        TypedValue value = new TypedValue();
+        if (!context.getTheme().resolveAttribute(android.R.attr.textAppearanceSmall, value, true)
+                || value.resourceId == 0)
+            return Typeface.DEFAULT;
+
+        TextAppearanceSpan appearance = new TextAppearanceSpan(context, value.resourceId);
+        String family = appearance.getFamily();
+        return family != null
+                ? Typeface.create(family, appearance.getTextStyle())
+                : Typeface.defaultFromStyle(appearance.getTextStyle());
+    }
+
+    private static final class Key {
+        private final String text;
+        private final float textSize;
+        private final Typeface typeface;
+
+        Key(String text, float textSize, Typeface typeface) {
+            this.text = text;
+            this.textSize = textSize;
+            this.typeface = typeface;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return text.equals(other.text) && textSize == other.textSize
+                    && Objects.equals(typeface, other.typeface);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, textSize, typeface);
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.search.SearchIndexable;
+import com.nusantara.wings.AppInfoCache;
 
 import java.util.List;
 import java.util.Arrays;
@@ -133,6 +134,7 @@ public class OmniJawsSettings extends SettingsPreferenceFragment implements
     private void getAvailableWeatherIconPacks(List<String> entries, List<String> values) {
         Intent i = new Intent();
         PackageManager packageManager = getPackageManager();
+        AppInfoCache appInfoCache = AppInfoCache.getInstance(getContext());
         i.setAction("org.omnirom.WeatherIconPack");
         for (ResolveInfo r : packageManager.queryIntentActivities(i, 0)) {
             String packageName = r.activityInfo.packageName;
@@ -141,7 +143,7 @@ public class OmniJawsSettings extends SettingsPreferenceFragment implements
             } else {
                 values.add(r.activityInfo.name);
             }
-            String label = r.activityInfo.loadLabel(getPackageManager()).toString();
+            String label = appInfoCache.getLabel(r.activityInfo).toString();
             if (label == null) {
                 label = r.activityInfo.packageName;
             }
@@ -156,7 +158,7 @@ public class OmniJawsSettings extends SettingsPreferenceFragment implements
         for (ResolveInfo r : packageManager.queryIntentActivities(i, 0)) {
             String packageName = r.activityInfo.packageName;
             values.add(packageName + ".weather");
-            String label = r.activityInfo.loadLabel(getPackageManager()).toString();
+            String label = appInfoCache.getLabel(r.activityInfo).toString();
             if (label == null) {
                 label = r.activityInfo.packageName;
             }
@@ -37,15 +37,18 @@ import com.android.settings.Utils;
 
 import com.android.internal.logging.nano.MetricsProto;
 
-import com.nusantara.support.preferences.CustomSeekBarPreference;
+import com.nusantara.wings.SettingsWriter;
+import com.nusantara.wings.preferences.TrackingSeekBarPreference;
 
 public class ButtonBrightness extends SettingsPreferenceFragment implements Preference.OnPreferenceChangeListener {
 
     private static final String KEY_BUTTON_MANUAL_BRIGHTNESS_NEW = "button_manual_brightness_new";
     private static final String KEY_BUTTON_TIMEOUT = "button_timeout";
 
-    private CustomSeekBarPreference mButtonTimoutBar;
-    private CustomSeekBarPreference mManualButtonBrightness;
+    private TrackingSeekBarPreference mButtonTimoutBar;
+    private TrackingSeekBarPreference mManualButtonBrightness;
+
+    private SettingsWriter mWriter;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -54,8 +57,9 @@ public class ButtonBrightness extends SettingsPreferenceFragment implements Pref
 
         PreferenceScreen prefSet = getPreferenceScreen();
         ContentResolver resolver = getActivity().getContentResolver();
+        mWriter = new SettingsWriter(getContext());
 
-        mManualButtonBrightness = (CustomSeekBarPreference) findPreference(
+        mManualButtonBrightness = (TrackingSeekBarPreference) findPreference(
                 KEY_BUTTON_MANUAL_BRIGHTNESS_NEW);
         final int customButtonBrightness = getResources().getInteger(
                 com.android.internal.R.integer.config_button_brightness_default);
@@ -66,29 +70,35 @@ public class ButtonBrightness extends SettingsPreferenceFragment implements Pref
         mManualButtonBrightness.setMax(pm.getMaximumScreenBrightnessSetting());
         mManualButtonBrightness.setValue(currentBrightness);
         mManualButtonBrightness.setOnPreferenceChangeListener(this);
+        mManualButtonBrightness.setOnStopTrackingListener(preference -> mWriter.flush());
 
-        mButtonTimoutBar = (CustomSeekBarPreference) findPreference(KEY_BUTTON_TIMEOUT);
+        mButtonTimoutBar = (TrackingSeekBarPreference) findPreference(KEY_BUTTON_TIMEOUT);
         int currentTimeout = Settings.System.getInt(resolver,
                 Settings.System.BUTTON_BACKLIGHT_TIMEOUT, 0);
         mButtonTimoutBar.setValue(currentTimeout);
         mButtonTimoutBar.setOnPreferenceChangeListener(this);
+        mButtonTimoutBar.setOnStopTrackingListener(preference -> mWriter.flush());
     }
 
     public boolean onPreferenceChange(Preference preference, Object objValue) {
         if (preference == mButtonTimoutBar) {
             int buttonTimeout = (Integer) objValue;
-            Settings.System.putInt(getContentResolver(),
-                    Settings.System.BUTTON_BACKLIGHT_TIMEOUT, buttonTimeout);
+            mWriter.putInt(Settings.System.BUTTON_BACKLIGHT_TIMEOUT, buttonTimeout);
         } else if (preference == mManualButtonBrightness) {
             int buttonBrightness = (Integer) objValue;
-            Settings.System.putInt(getContentResolver(),
-                    Settings.System.CUSTOM_BUTTON_BRIGHTNESS, buttonBrightness);
+            mWriter.putInt(Settings.System.CUSTOM_BUTTON_BRIGHTNESS, buttonBrightness);
         } else {
             return false;
         }
         return true;
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        mWriter.flush();
+    }
+
     @Override
     public int getMetricsCategory() {
         return MetricsProto.MetricsEvent.NUSANTARA_PRJ;
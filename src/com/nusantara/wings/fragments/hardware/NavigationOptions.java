@@ -17,11 +17,9 @@
 package com.nusantara.wings.fragments.hardware;
 
 import android.content.Context;
-import android.content.ContentResolver;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.ServiceManager;
-import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
 import android.provider.Settings;
 
@@ -42,6 +40,8 @@ import com.android.settingslib.search.SearchIndexable;
 import com.nusantara.support.preferences.SystemSettingSwitchPreference;
 import com.nusantara.support.preferences.SecureSettingSwitchPreference;
 import com.nusantara.support.preferences.SystemSettingListPreference;
+import com.nusantara.wings.DeviceCapabilities;
+import com.nusantara.wings.SettingsSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -162,16 +162,47 @@ public class NavigationOptions extends SettingsPreferenceFragment
 
     private Handler mHandler;
 
+    private SettingsSnapshot mSettings;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.nad_navigation_options);
 
         final PreferenceScreen prefSet = getPreferenceScreen();
-        final ContentResolver resolver = getActivity().getContentResolver();
 
-        deviceKeys = getResources().getInteger(
-                com.android.internal.R.integer.config_deviceHardwareKeys);
+        mSettings = SettingsSnapshot.system(getContext(),
+                Settings.System.FORCE_SHOW_NAVBAR,
+                Settings.System.KEY_BACK_LONG_PRESS_ACTION,
+                Settings.System.KEY_BACK_DOUBLE_TAP_ACTION,
+                Settings.System.KEY_HOME_LONG_PRESS_ACTION,
+                Settings.System.KEY_HOME_DOUBLE_TAP_ACTION,
+                Settings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION,
+                Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION,
+                Settings.System.KEY_MENU_LONG_PRESS_ACTION,
+                Settings.System.KEY_MENU_DOUBLE_TAP_ACTION,
+                Settings.System.KEY_CAMERA_LONG_PRESS_ACTION,
+                Settings.System.KEY_CAMERA_DOUBLE_TAP_ACTION,
+                Settings.System.KEY_ASSIST_LONG_PRESS_ACTION,
+                Settings.System.KEY_ASSIST_DOUBLE_TAP_ACTION,
+                Settings.System.KEY_BACK_LONG_PRESS_CUSTOM_APP_FR_NAME,
+                Settings.System.KEY_BACK_DOUBLE_TAP_CUSTOM_APP_FR_NAME,
+                Settings.System.KEY_HOME_LONG_PRESS_CUSTOM_APP_FR_NAME,
+                Settings.System.KEY_HOME_DOUBLE_TAP_CUSTOM_APP_FR_NAME,
+                Settings.System.KEY_APP_SWITCH_LONG_PRESS_CUSTOM_APP_FR_NAME,
+                Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_CUSTOM_APP_FR_NAME,
+                Settings.System.LEFT_LONG_BACK_SWIPE_ACTION,
+                Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION,
+                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION,
+                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION,
+                Settings.System.LEFT_LONG_BACK_SWIPE_APP_FR_ACTION,
+                Settings.System.RIGHT_LONG_BACK_SWIPE_APP_FR_ACTION,
+                Settings.System.LEFT_VERTICAL_BACK_SWIPE_APP_FR_ACTION,
+                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_APP_FR_ACTION,
+                Settings.System.BACK_SWIPE_EXTENDED);
+        mSettings.startObserving(this, this::onSettingChanged);
+
+        deviceKeys = DeviceCapabilities.get(getContext()).getDeviceHardwareKeys();
 
         boolean buttonBacklightSupported = getResources().getBoolean(
                 com.android.internal.R.bool.config_button_brightness_support);
@@ -243,147 +274,139 @@ public class NavigationOptions extends SettingsPreferenceFragment
         mNavigationBar.setOnPreferenceChangeListener(this);
 
         mBackLongPress = (ListPreference) findPreference(KEY_BACK_LONG_PRESS_ACTION);
-        int backlongpress = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_BACK_LONG_PRESS_ACTION, backKeyLongPress, UserHandle.USER_CURRENT);
+        int backlongpress = mSettings.getInt(
+                Settings.System.KEY_BACK_LONG_PRESS_ACTION, backKeyLongPress);
         mBackLongPress.setValue(String.valueOf(backlongpress));
         mBackLongPress.setSummary(mBackLongPress.getEntry());
         mBackLongPress.setOnPreferenceChangeListener(this);
 
         mBackDoubleTap = (ListPreference) findPreference(KEY_BACK_DOUBLE_TAP_ACTION);
-        int backdoubletap = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_BACK_DOUBLE_TAP_ACTION, backKeyDoubleTap, UserHandle.USER_CURRENT);
+        int backdoubletap = mSettings.getInt(
+                Settings.System.KEY_BACK_DOUBLE_TAP_ACTION, backKeyDoubleTap);
         mBackDoubleTap.setValue(String.valueOf(backdoubletap));
         mBackDoubleTap.setSummary(mBackDoubleTap.getEntry());
         mBackDoubleTap.setOnPreferenceChangeListener(this);
 
         mHomeLongPress = (ListPreference) findPreference(KEY_HOME_LONG_PRESS_ACTION);
-        int homelongpress = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_HOME_LONG_PRESS_ACTION, homeKeyLongPress, UserHandle.USER_CURRENT);
+        int homelongpress = mSettings.getInt(
+                Settings.System.KEY_HOME_LONG_PRESS_ACTION, homeKeyLongPress);
         mHomeLongPress.setValue(String.valueOf(homelongpress));
         mHomeLongPress.setSummary(mHomeLongPress.getEntry());
         mHomeLongPress.setOnPreferenceChangeListener(this);
 
         mHomeDoubleTap = (ListPreference) findPreference(KEY_HOME_DOUBLE_TAP_ACTION);
-        int homedoubletap = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_HOME_DOUBLE_TAP_ACTION, homeKeyDoubleTap, UserHandle.USER_CURRENT);
+        int homedoubletap = mSettings.getInt(
+                Settings.System.KEY_HOME_DOUBLE_TAP_ACTION, homeKeyDoubleTap);
         mHomeDoubleTap.setValue(String.valueOf(homedoubletap));
         mHomeDoubleTap.setSummary(mHomeDoubleTap.getEntry());
         mHomeDoubleTap.setOnPreferenceChangeListener(this);
 
         mAppSwitchLongPress = (ListPreference) findPreference(KEY_APP_SWITCH_LONG_PRESS);
-        int appswitchlongpress = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION, AppSwitchKeyLongPress, UserHandle.USER_CURRENT);
+        int appswitchlongpress = mSettings.getInt(
+                Settings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION, AppSwitchKeyLongPress);
         mAppSwitchLongPress.setValue(String.valueOf(appswitchlongpress));
         mAppSwitchLongPress.setSummary(mAppSwitchLongPress.getEntry());
         mAppSwitchLongPress.setOnPreferenceChangeListener(this);
 
         mAppSwitchDoubleTap = (ListPreference) findPreference(KEY_APP_SWITCH_DOUBLE_TAP);
-        int appswitchdoubletap = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION, AppSwitchKeyDoubleTap, UserHandle.USER_CURRENT);
+        int appswitchdoubletap = mSettings.getInt(
+                Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION, AppSwitchKeyDoubleTap);
         mAppSwitchDoubleTap.setValue(String.valueOf(appswitchdoubletap));
         mAppSwitchDoubleTap.setSummary(mAppSwitchDoubleTap.getEntry());
         mAppSwitchDoubleTap.setOnPreferenceChangeListener(this);
 
         mMenuLongPress = (ListPreference) findPreference(KEY_MENU_LONG_PRESS_ACTION);
-        int menulongpress = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_MENU_LONG_PRESS_ACTION, MenuKeyLongPress, UserHandle.USER_CURRENT);
+        int menulongpress = mSettings.getInt(
+                Settings.System.KEY_MENU_LONG_PRESS_ACTION, MenuKeyLongPress);
         mMenuLongPress.setValue(String.valueOf(menulongpress));
         mMenuLongPress.setSummary(mMenuLongPress.getEntry());
         mMenuLongPress.setOnPreferenceChangeListener(this);
 
         mMenuDoubleTap = (ListPreference) findPreference(KEY_MENU_DOUBLE_TAP_ACTION);
-        int menudoubletap = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_MENU_DOUBLE_TAP_ACTION, MenuKeyDoubleTap, UserHandle.USER_CURRENT);
+        int menudoubletap = mSettings.getInt(
+                Settings.System.KEY_MENU_DOUBLE_TAP_ACTION, MenuKeyDoubleTap);
         mMenuDoubleTap.setValue(String.valueOf(menudoubletap));
         mMenuDoubleTap.setSummary(mMenuDoubleTap.getEntry());
         mMenuDoubleTap.setOnPreferenceChangeListener(this);
 
         mCameraLongPress = (ListPreference) findPreference(KEY_CAMERA_LONG_PRESS_ACTION);
-        int cameralongpress = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_CAMERA_LONG_PRESS_ACTION, CameraKeyLongPress, UserHandle.USER_CURRENT);
+        int cameralongpress = mSettings.getInt(
+                Settings.System.KEY_CAMERA_LONG_PRESS_ACTION, CameraKeyLongPress);
         mCameraLongPress.setValue(String.valueOf(cameralongpress));
         mCameraLongPress.setSummary(mCameraLongPress.getEntry());
         mCameraLongPress.setOnPreferenceChangeListener(this);
 
         mCameraDoubleTap = (ListPreference) findPreference(KEY_CAMERA_DOUBLE_TAP_ACTION);
-        int cameradoubletap = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_CAMERA_DOUBLE_TAP_ACTION, CameraKeyDoubleTap, UserHandle.USER_CURRENT);
+        int cameradoubletap = mSettings.getInt(
+                Settings.System.KEY_CAMERA_DOUBLE_TAP_ACTION, CameraKeyDoubleTap);
         mCameraDoubleTap.setValue(String.valueOf(cameradoubletap));
         mCameraDoubleTap.setSummary(mCameraDoubleTap.getEntry());
         mCameraDoubleTap.setOnPreferenceChangeListener(this);
 
         mAssistLongPress = (ListPreference) findPreference(KEY_ASSIST_LONG_PRESS_ACTION);
-        int assistlongpress = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_ASSIST_LONG_PRESS_ACTION, AssistKeyLongPress, UserHandle.USER_CURRENT);
+        int assistlongpress = mSettings.getInt(
+                Settings.System.KEY_ASSIST_LONG_PRESS_ACTION, AssistKeyLongPress);
         mAssistLongPress.setValue(String.valueOf(assistlongpress));
         mAssistLongPress.setSummary(mAssistLongPress.getEntry());
         mAssistLongPress.setOnPreferenceChangeListener(this);
 
         mAssistDoubleTap = (ListPreference) findPreference(KEY_ASSIST_DOUBLE_TAP_ACTION);
-        int assistdoubletap = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.KEY_ASSIST_DOUBLE_TAP_ACTION, AssistKeyDoubleTap, UserHandle.USER_CURRENT);
+        int assistdoubletap = mSettings.getInt(
+                Settings.System.KEY_ASSIST_DOUBLE_TAP_ACTION, AssistKeyDoubleTap);
         mAssistDoubleTap.setValue(String.valueOf(assistdoubletap));
         mAssistDoubleTap.setSummary(mAssistDoubleTap.getEntry());
         mAssistDoubleTap.setOnPreferenceChangeListener(this);
 
-        int leftSwipeActions = Settings.System.getIntForUser(resolver,
-                Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
+        int leftSwipeActions = mSettings.getInt(Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, 0);
         mLeftSwipeActions = (ListPreference) findPreference(KEY_LEFT_SWIPE_ACTIONS);
         mLeftSwipeActions.setValue(Integer.toString(leftSwipeActions));
         mLeftSwipeActions.setSummary(mLeftSwipeActions.getEntry());
         mLeftSwipeActions.setOnPreferenceChangeListener(this);
 
-        int rightSwipeActions = Settings.System.getIntForUser(resolver,
-                Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
+        int rightSwipeActions = mSettings.getInt(Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, 0);
         mRightSwipeActions = (ListPreference) findPreference(KEY_RIGHT_SWIPE_ACTIONS);
         mRightSwipeActions.setValue(Integer.toString(rightSwipeActions));
         mRightSwipeActions.setSummary(mRightSwipeActions.getEntry());
         mRightSwipeActions.setOnPreferenceChangeListener(this);
 
         mLeftSwipeAppSelection = (Preference) findPreference(KEY_LEFT_SWIPE_APP_ACTION);
-        boolean isAppSelection = Settings.System.getIntForUser(resolver,
-                Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, 0, UserHandle.USER_CURRENT) == 2/*action_app_action*/;
+        boolean isAppSelection = mSettings.getInt(
+                Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, 0) == 2/*action_app_action*/;
         mLeftSwipeAppSelection.setEnabled(isAppSelection);
 
         mRightSwipeAppSelection = (Preference) findPreference(KEY_RIGHT_SWIPE_APP_ACTION);
-        isAppSelection = Settings.System.getIntForUser(resolver,
-                Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, 0, UserHandle.USER_CURRENT) == 2/*action_app_action*/;
+        isAppSelection = mSettings.getInt(
+                Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, 0) == 2/*action_app_action*/;
         mRightSwipeAppSelection.setEnabled(isAppSelection);
 
-        int leftVerticalSwipeActions = Settings.System.getIntForUser(resolver,
-                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
+        int leftVerticalSwipeActions = mSettings.getInt(
+                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, 0);
         mLeftVerticalSwipeActions = (ListPreference) findPreference(KEY_LEFT_VERTICAL_SWIPE_ACTIONS);
         mLeftVerticalSwipeActions.setValue(Integer.toString(leftVerticalSwipeActions));
         mLeftVerticalSwipeActions.setSummary(mLeftVerticalSwipeActions.getEntry());
         mLeftVerticalSwipeActions.setOnPreferenceChangeListener(this);
 
-        int rightVerticalSwipeActions = Settings.System.getIntForUser(resolver,
-                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
+        int rightVerticalSwipeActions = mSettings.getInt(
+                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, 0);
         mRightVerticalSwipeActions = (ListPreference) findPreference(KEY_RIGHT_VERTICAL_SWIPE_ACTIONS);
         mRightVerticalSwipeActions.setValue(Integer.toString(rightVerticalSwipeActions));
         mRightVerticalSwipeActions.setSummary(mRightVerticalSwipeActions.getEntry());
         mRightVerticalSwipeActions.setOnPreferenceChangeListener(this);
 
         mLeftVerticalSwipeAppSelection = (Preference) findPreference(KEY_LEFT_VERTICAL_SWIPE_APP_ACTION);
-        isAppSelection = Settings.System.getIntForUser(resolver,
-                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, 0, UserHandle.USER_CURRENT) == 2/*action_app_action*/;
+        isAppSelection = mSettings.getInt(
+                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, 0) == 2/*action_app_action*/;
         mLeftVerticalSwipeAppSelection.setEnabled(isAppSelection);
 
         mRightVerticalSwipeAppSelection = (Preference) findPreference(KEY_RIGHT_VERTICAL_SWIPE_APP_ACTION);
-        isAppSelection = Settings.System.getIntForUser(resolver,
-                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, 0, UserHandle.USER_CURRENT) == 2/*action_app_action*/;
+        isAppSelection = mSettings.getInt(
+                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, 0) == 2/*action_app_action*/;
         mRightVerticalSwipeAppSelection.setEnabled(isAppSelection);
 
         mTimeout = (SystemSettingListPreference) findPreference(KEY_LONG_BACK_SWIPE_TIMEOUT);
 
         mExtendedSwipe = (SystemSettingSwitchPreference) findPreference(KEY_BACK_SWIPE_EXTENDED);
-        boolean extendedSwipe = Settings.System.getIntForUser(resolver,
-                Settings.System.BACK_SWIPE_EXTENDED, 0,
-                UserHandle.USER_CURRENT) != 0;
+        boolean extendedSwipe = mSettings.getInt(Settings.System.BACK_SWIPE_EXTENDED, 0) != 0;
         mExtendedSwipe.setChecked(extendedSwipe);
         mExtendedSwipe.setOnPreferenceChangeListener(this);
         mTimeout.setEnabled(!mExtendedSwipe.isChecked());
@@ -445,15 +468,13 @@ public class NavigationOptions extends SettingsPreferenceFragment
     }
 
     public boolean onPreferenceChange(Preference preference, Object objValue) {
-        final ContentResolver resolver = getActivity().getContentResolver();
         if (preference == mNavigationBar) {
             boolean value = (Boolean) objValue;
             if (mIsNavSwitchingMode) {
                 return false;
             }
             mIsNavSwitchingMode = true;
-            Settings.System.putInt(resolver,
-                    Settings.System.FORCE_SHOW_NAVBAR, value ? 1 : 0);
+            mSettings.putInt(Settings.System.FORCE_SHOW_NAVBAR, value ? 1 : 0);
             navbarCheck();
             updateHwKeys();
             mHandler.postDelayed(new Runnable() {
@@ -465,9 +486,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mBackLongPress) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_BACK_LONG_PRESS_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_BACK_LONG_PRESS_ACTION, value);
             int index = mBackLongPress.findIndexOfValue((String) objValue);
             mBackLongPress.setSummary(
                     mBackLongPress.getEntries()[index]);
@@ -477,9 +496,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mBackDoubleTap) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_BACK_DOUBLE_TAP_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_BACK_DOUBLE_TAP_ACTION, value);
             int index = mBackDoubleTap.findIndexOfValue((String) objValue);
             mBackDoubleTap.setSummary(
                     mBackDoubleTap.getEntries()[index]);
@@ -488,9 +505,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mHomeLongPress) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_HOME_LONG_PRESS_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_HOME_LONG_PRESS_ACTION, value);
             int index = mHomeLongPress.findIndexOfValue((String) objValue);
             mHomeLongPress.setSummary(
                     mHomeLongPress.getEntries()[index]);
@@ -499,9 +514,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mHomeDoubleTap) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_HOME_DOUBLE_TAP_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_HOME_DOUBLE_TAP_ACTION, value);
             int index = mHomeDoubleTap.findIndexOfValue((String) objValue);
             mHomeDoubleTap.setSummary(
                     mHomeDoubleTap.getEntries()[index]);
@@ -510,9 +523,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mAppSwitchLongPress) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION, value);
             int index = mAppSwitchLongPress.findIndexOfValue((String) objValue);
             mAppSwitchLongPress.setSummary(
                     mAppSwitchLongPress.getEntries()[index]);
@@ -521,9 +532,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mAppSwitchDoubleTap) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION, value);
             int index = mAppSwitchDoubleTap.findIndexOfValue((String) objValue);
             mAppSwitchDoubleTap.setSummary(
                     mAppSwitchDoubleTap.getEntries()[index]);
@@ -532,63 +541,49 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mMenuLongPress) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_MENU_LONG_PRESS_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_MENU_LONG_PRESS_ACTION, value);
             int index = mMenuLongPress.findIndexOfValue((String) objValue);
             mMenuLongPress.setSummary(
                     mMenuLongPress.getEntries()[index]);
             return true;
         } else if (preference == mMenuDoubleTap) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_MENU_DOUBLE_TAP_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_MENU_DOUBLE_TAP_ACTION, value);
             int index = mMenuDoubleTap.findIndexOfValue((String) objValue);
             mMenuDoubleTap.setSummary(
                     mMenuDoubleTap.getEntries()[index]);
             return true;
         } else if (preference == mCameraLongPress) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_CAMERA_LONG_PRESS_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_CAMERA_LONG_PRESS_ACTION, value);
             int index = mCameraLongPress.findIndexOfValue((String) objValue);
             mCameraLongPress.setSummary(
                     mCameraLongPress.getEntries()[index]);
             return true;
         } else if (preference == mCameraDoubleTap) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_CAMERA_DOUBLE_TAP_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_CAMERA_DOUBLE_TAP_ACTION, value);
             int index = mCameraDoubleTap.findIndexOfValue((String) objValue);
             mCameraDoubleTap.setSummary(
                     mCameraDoubleTap.getEntries()[index]);
             return true;
         } else if (preference == mAssistLongPress) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_ASSIST_LONG_PRESS_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_ASSIST_LONG_PRESS_ACTION, value);
             int index = mAssistLongPress.findIndexOfValue((String) objValue);
             mAssistLongPress.setSummary(
                     mAssistLongPress.getEntries()[index]);
             return true;
         } else if (preference == mAssistDoubleTap) {
             int value = Integer.parseInt((String) objValue);
-            Settings.System.putIntForUser(getActivity().getContentResolver(),
-                    Settings.System.KEY_ASSIST_DOUBLE_TAP_ACTION, value,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.KEY_ASSIST_DOUBLE_TAP_ACTION, value);
             int index = mAssistDoubleTap.findIndexOfValue((String) objValue);
             mAssistDoubleTap.setSummary(
                     mAssistDoubleTap.getEntries()[index]);
             return true;
         } else if (preference == mLeftSwipeActions) {
             int leftSwipeActions = Integer.valueOf((String) objValue);
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, leftSwipeActions,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, leftSwipeActions);
             int index = mLeftSwipeActions.findIndexOfValue((String) objValue);
             mLeftSwipeActions.setSummary(
                     mLeftSwipeActions.getEntries()[index]);
@@ -598,9 +593,7 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mRightSwipeActions) {
             int rightSwipeActions = Integer.valueOf((String) objValue);
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, rightSwipeActions,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, rightSwipeActions);
             int index = mRightSwipeActions.findIndexOfValue((String) objValue);
             mRightSwipeActions.setSummary(
                     mRightSwipeActions.getEntries()[index]);
@@ -616,9 +609,8 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true; 
         } else if (preference == mLeftVerticalSwipeActions) {
             int leftVerticalSwipeActions = Integer.valueOf((String) objValue);
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, leftVerticalSwipeActions,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION,
+                    leftVerticalSwipeActions);
             int index = mLeftVerticalSwipeActions.findIndexOfValue((String) objValue);
             mLeftVerticalSwipeActions.setSummary(
                     mLeftVerticalSwipeActions.getEntries()[index]);
@@ -628,9 +620,8 @@ public class NavigationOptions extends SettingsPreferenceFragment
             return true;
         } else if (preference == mRightVerticalSwipeActions) {
             int rightVerticalSwipeActions = Integer.valueOf((String) objValue);
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, rightVerticalSwipeActions,
-                    UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION,
+                    rightVerticalSwipeActions);
             int index = mRightVerticalSwipeActions.findIndexOfValue((String) objValue);
             mRightVerticalSwipeActions.setSummary(
                     mRightVerticalSwipeActions.getEntries()[index]);
@@ -651,18 +642,16 @@ public class NavigationOptions extends SettingsPreferenceFragment
     }
 
     private boolean isNavbarVisible() {
-        boolean defaultToNavigationBar = NadUtils.deviceSupportNavigationBar(getActivity());
-        return Settings.System.getInt(getActivity().getContentResolver(),
-                Settings.System.FORCE_SHOW_NAVBAR, defaultToNavigationBar ? 1 : 0) == 1;
+        boolean defaultToNavigationBar =
+                DeviceCapabilities.get(getContext()).isNavigationBarSupported();
+        return mSettings.getInt(Settings.System.FORCE_SHOW_NAVBAR,
+                defaultToNavigationBar ? 1 : 0) == 1;
     }
 
     private void navbarCheck() {
-        deviceKeys = getResources().getInteger(
-                com.android.internal.R.integer.config_deviceHardwareKeys);
+        deviceKeys = DeviceCapabilities.get(getContext()).getDeviceHardwareKeys();
 
-        boolean extendedSwipe = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.BACK_SWIPE_EXTENDED, 0,
-                UserHandle.USER_CURRENT) != 0;
+        boolean extendedSwipe = mSettings.getInt(Settings.System.BACK_SWIPE_EXTENDED, 0) != 0;
 
         if (deviceKeys == 0) {
                 homeCategory.setEnabled(true);
@@ -762,26 +751,26 @@ public class NavigationOptions extends SettingsPreferenceFragment
     }
 
     private void customAppCheck() {
-        mBackLongPressCustomApp.setSummary(Settings.System.getString(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.KEY_BACK_LONG_PRESS_CUSTOM_APP_FR_NAME)));
-        mBackDoubleTapCustomApp.setSummary(Settings.System.getString(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.KEY_BACK_DOUBLE_TAP_CUSTOM_APP_FR_NAME)));
-        mHomeLongPressCustomApp.setSummary(Settings.System.getString(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.KEY_HOME_LONG_PRESS_CUSTOM_APP_FR_NAME)));
-        mHomeDoubleTapCustomApp.setSummary(Settings.System.getString(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.KEY_HOME_DOUBLE_TAP_CUSTOM_APP_FR_NAME)));
-        mAppSwitchLongPressCustomApp.setSummary(Settings.System.getString(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.KEY_APP_SWITCH_LONG_PRESS_CUSTOM_APP_FR_NAME)));
-        mAppSwitchDoubleTapCustomApp.setSummary(Settings.System.getString(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_CUSTOM_APP_FR_NAME)));
-        mLeftSwipeAppSelection.setSummary(Settings.System.getStringForUser(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.LEFT_LONG_BACK_SWIPE_APP_FR_ACTION), UserHandle.USER_CURRENT));
-        mRightSwipeAppSelection.setSummary(Settings.System.getStringForUser(getActivity().getContentResolver(),
-                String.valueOf(Settings.System.RIGHT_LONG_BACK_SWIPE_APP_FR_ACTION), UserHandle.USER_CURRENT));
-        mLeftVerticalSwipeAppSelection.setSummary(Settings.System.getStringForUser(getContentResolver(),
-                String.valueOf(Settings.System.LEFT_VERTICAL_BACK_SWIPE_APP_FR_ACTION), UserHandle.USER_CURRENT));
-        mRightVerticalSwipeAppSelection.setSummary(Settings.System.getStringForUser(getContentResolver(),
-                String.valueOf(Settings.System.RIGHT_VERTICAL_BACK_SWIPE_APP_FR_ACTION), UserHandle.USER_CURRENT));
+        mBackLongPressCustomApp.setSummary(mSettings.getString(
+                Settings.System.KEY_BACK_LONG_PRESS_CUSTOM_APP_FR_NAME));
+        mBackDoubleTapCustomApp.setSummary(mSettings.getString(
+                Settings.System.KEY_BACK_DOUBLE_TAP_CUSTOM_APP_FR_NAME));
+        mHomeLongPressCustomApp.setSummary(mSettings.getString(
+                Settings.System.KEY_HOME_LONG_PRESS_CUSTOM_APP_FR_NAME));
+        mHomeDoubleTapCustomApp.setSummary(mSettings.getString(
+                Settings.System.KEY_HOME_DOUBLE_TAP_CUSTOM_APP_FR_NAME));
+        mAppSwitchLongPressCustomApp.setSummary(mSettings.getString(
+                Settings.System.KEY_APP_SWITCH_LONG_PRESS_CUSTOM_APP_FR_NAME));
+        mAppSwitchDoubleTapCustomApp.setSummary(mSettings.getString(
+                Settings.System.KEY_APP_SWITCH_DOUBLE_TAP_CUSTOM_APP_FR_NAME));
+        mLeftSwipeAppSelection.setSummary(mSettings.getString(
+                Settings.System.LEFT_LONG_BACK_SWIPE_APP_FR_ACTION));
+        mRightSwipeAppSelection.setSummary(mSettings.getString(
+                Settings.System.RIGHT_LONG_BACK_SWIPE_APP_FR_ACTION));
+        mLeftVerticalSwipeAppSelection.setSummary(mSettings.getString(
+                Settings.System.LEFT_VERTICAL_BACK_SWIPE_APP_FR_ACTION));
+        mRightVerticalSwipeAppSelection.setSummary(mSettings.getString(
+                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_APP_FR_ACTION));
     }
 
     @Override
@@ -802,21 +791,30 @@ public class NavigationOptions extends SettingsPreferenceFragment
         actionPreferenceReload();
     }
 
+    private void onSettingChanged(String key) {
+        if (Settings.System.FORCE_SHOW_NAVBAR.equals(key)
+                || Settings.System.BACK_SWIPE_EXTENDED.equals(key)) {
+            navbarCheck();
+            updateHwKeys();
+        } else if (Settings.System.LEFT_LONG_BACK_SWIPE_ACTION.equals(key)
+                || Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION.equals(key)
+                || Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION.equals(key)
+                || Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION.equals(key)) {
+            actionPreferenceReload();
+        } else {
+            customAppCheck();
+        }
+    }
+
     private void actionPreferenceReload() {
-        int leftSwipeActions = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
-        int rightSwipeActions = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
-
-        int leftVerticalSwipeActions = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
-
-        int rightVerticalSwipeActions = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, 0,
-                UserHandle.USER_CURRENT);
+        int leftSwipeActions = mSettings.getInt(Settings.System.LEFT_LONG_BACK_SWIPE_ACTION, 0);
+        int rightSwipeActions = mSettings.getInt(Settings.System.RIGHT_LONG_BACK_SWIPE_ACTION, 0);
+
+        int leftVerticalSwipeActions = mSettings.getInt(
+                Settings.System.LEFT_VERTICAL_BACK_SWIPE_ACTION, 0);
+
+        int rightVerticalSwipeActions = mSettings.getInt(
+                Settings.System.RIGHT_VERTICAL_BACK_SWIPE_ACTION, 0);
 
         // Reload the action preferences
         mLeftSwipeActions.setValue(Integer.toString(leftSwipeActions));
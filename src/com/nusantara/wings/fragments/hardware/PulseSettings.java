@@ -16,11 +16,9 @@
 
 package com.nusantara.wings.fragments.hardware;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Color;
 import android.os.Bundle;
-import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
 import android.provider.Settings;
 
@@ -37,6 +35,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.search.Indexable;
 import com.nusantara.support.colorpicker.ColorPickerPreference;
+import com.nusantara.wings.SettingsSnapshot;
 import com.nusantara.wings.bottomnav.ViewUtils;
 
 import java.util.Arrays;
@@ -75,28 +74,34 @@ public class PulseSettings extends SettingsPreferenceFragment implements
     private PreferenceCategory mFadingBarsCat;
     private PreferenceCategory mSolidBarsCat;
 
+    private SettingsSnapshot mSettings;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.pulse_settings);
 
-        ContentResolver resolver = getContentResolver();
+        mSettings = SettingsSnapshot.secure(getContext(),
+                Settings.Secure.NAVBAR_PULSE_ENABLED,
+                Settings.Secure.LOCKSCREEN_PULSE_ENABLED,
+                Settings.Secure.AMBIENT_PULSE_ENABLED,
+                Settings.Secure.PULSE_COLOR_MODE,
+                Settings.Secure.PULSE_RENDER_STYLE);
+        mSettings.startObserving(this, null);
 
         mNavbarPulse = (SwitchPreference) findPreference(NAVBAR_PULSE_ENABLED_KEY);
-        boolean navbarPulse = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.NAVBAR_PULSE_ENABLED, 0, UserHandle.USER_CURRENT) != 0;
+        boolean navbarPulse = mSettings.getInt(Settings.Secure.NAVBAR_PULSE_ENABLED, 0) != 0;
         mNavbarPulse.setChecked(navbarPulse);
         mNavbarPulse.setOnPreferenceChangeListener(this);
 
         mLockscreenPulse = (SwitchPreference) findPreference(LOCKSCREEN_PULSE_ENABLED_KEY);
-        boolean lockscreenPulse = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.LOCKSCREEN_PULSE_ENABLED, 0, UserHandle.USER_CURRENT) != 0;
+        boolean lockscreenPulse = mSettings.getInt(
+                Settings.Secure.LOCKSCREEN_PULSE_ENABLED, 0) != 0;
         mLockscreenPulse.setChecked(lockscreenPulse);
         mLockscreenPulse.setOnPreferenceChangeListener(this);
 
         mAmbientPulse = (SwitchPreference) findPreference(AMBIENT_PULSE_ENABLED_KEY);
-        boolean ambientPulse = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.AMBIENT_PULSE_ENABLED, 1, UserHandle.USER_CURRENT) != 0;
+        boolean ambientPulse = mSettings.getInt(Settings.Secure.AMBIENT_PULSE_ENABLED, 1) != 0;
         mAmbientPulse.setChecked(ambientPulse);
         mAmbientPulse.setOnPreferenceChangeListener(this);
 
@@ -105,8 +110,7 @@ public class PulseSettings extends SettingsPreferenceFragment implements
         mLavaSpeedPref = findPreference(PULSE_COLOR_MODE_LAVA_SPEED_KEY);
         mColorModePref.setOnPreferenceChangeListener(this);
         mColorPickerPref.setDefaultValue(ViewUtils.getThemeAccentColor(getContext()));
-        int colorMode = Settings.Secure.getIntForUser(getContentResolver(),
-                Settings.Secure.PULSE_COLOR_MODE, COLOR_TYPE_ACCENT, UserHandle.USER_CURRENT);
+        int colorMode = mSettings.getInt(Settings.Secure.PULSE_COLOR_MODE, COLOR_TYPE_ACCENT);
         if (colorMode == COLOR_TYPE_ACCENT) {
             mColorPickerPref.setNewPreviewColor(ViewUtils.getThemeAccentColor(getContext()));
         }
@@ -127,23 +131,19 @@ public class PulseSettings extends SettingsPreferenceFragment implements
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        ContentResolver resolver = getContext().getContentResolver();
         if (preference == mNavbarPulse) {
             boolean val = (Boolean) newValue;
-            Settings.Secure.putIntForUser(resolver,
-                Settings.Secure.NAVBAR_PULSE_ENABLED, val ? 1 : 0, UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.Secure.NAVBAR_PULSE_ENABLED, val ? 1 : 0);
             updateAllPrefs();
             return true;
         } else if (preference == mLockscreenPulse) {
             boolean val = (Boolean) newValue;
-            Settings.Secure.putIntForUser(resolver,
-                Settings.Secure.LOCKSCREEN_PULSE_ENABLED, val ? 1 : 0, UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.Secure.LOCKSCREEN_PULSE_ENABLED, val ? 1 : 0);
             updateAllPrefs();
             return true;
         } else if (preference == mAmbientPulse) {
             boolean val = (Boolean) newValue;
-            Settings.Secure.putIntForUser(resolver,
-                Settings.Secure.AMBIENT_PULSE_ENABLED, val ? 1 : 0, UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.Secure.AMBIENT_PULSE_ENABLED, val ? 1 : 0);
             updateAllPrefs();
             return true;
         } else if (preference == mColorModePref) {
@@ -157,22 +157,17 @@ public class PulseSettings extends SettingsPreferenceFragment implements
     }
 
     private void updateAllPrefs() {
-        ContentResolver resolver = getContentResolver();
-
-        boolean navbarPulse = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.NAVBAR_PULSE_ENABLED, 0, UserHandle.USER_CURRENT) != 0;
-        boolean lockscreenPulse = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.LOCKSCREEN_PULSE_ENABLED, 0, UserHandle.USER_CURRENT) != 0;
+        boolean navbarPulse = mSettings.getInt(Settings.Secure.NAVBAR_PULSE_ENABLED, 0) != 0;
+        boolean lockscreenPulse = mSettings.getInt(
+                Settings.Secure.LOCKSCREEN_PULSE_ENABLED, 0) != 0;
 
-        boolean ambientPulse = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.AMBIENT_PULSE_ENABLED, 1, UserHandle.USER_CURRENT) != 0;
+        boolean ambientPulse = mSettings.getInt(Settings.Secure.AMBIENT_PULSE_ENABLED, 1) != 0;
 
         mPulseSmoothing.setEnabled(navbarPulse || lockscreenPulse || ambientPulse);
 
         mColorModePref.setEnabled(navbarPulse || lockscreenPulse || ambientPulse);
         if (navbarPulse || lockscreenPulse || ambientPulse) {
-            int colorMode = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.PULSE_COLOR_MODE, COLOR_TYPE_ACCENT, UserHandle.USER_CURRENT);
+            int colorMode = mSettings.getInt(Settings.Secure.PULSE_COLOR_MODE, COLOR_TYPE_ACCENT);
             updateColorPrefs(colorMode);
         } else {
             mColorPickerPref.setEnabled(false);
@@ -181,8 +176,8 @@ public class PulseSettings extends SettingsPreferenceFragment implements
 
         mRenderMode.setEnabled(navbarPulse || lockscreenPulse || ambientPulse);
         if (navbarPulse || lockscreenPulse || ambientPulse) {
-            int renderMode = Settings.Secure.getIntForUser(resolver,
-                Settings.Secure.PULSE_RENDER_STYLE, RENDER_STYLE_SOLID_LINES, UserHandle.USER_CURRENT);
+            int renderMode = mSettings.getInt(Settings.Secure.PULSE_RENDER_STYLE,
+                    RENDER_STYLE_SOLID_LINES);
             updateRenderCategories(renderMode);
         } else {
             mFadingBarsCat.setEnabled(false);
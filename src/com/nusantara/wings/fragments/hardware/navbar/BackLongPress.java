@@ -6,6 +6,7 @@ import android.view.View;
 import android.widget.ListView;
 
 import com.nusantara.support.preferences.AppPicker;
+import com.nusantara.wings.AppInfoCache;
 
 public class BackLongPress extends AppPicker {
 
@@ -14,7 +15,8 @@ public class BackLongPress extends AppPicker {
         if (!mIsActivitiesList) {
             // we are in the Apps list
             String packageName = applist.get(position).packageName;
-            String friendlyAppString = (String) applist.get(position).loadLabel(packageManager);
+            String friendlyAppString = AppInfoCache.getInstance(this)
+                    .getLabel(applist.get(position)).toString();
             setPackage(packageName, friendlyAppString);
             setPackageActivity(null);
         } else if (mIsActivitiesList) {
@@ -30,7 +32,8 @@ public class BackLongPress extends AppPicker {
     protected void onLongClick(int position) {
         if (mIsActivitiesList) return;
         String packageName = applist.get(position).packageName;
-        String friendlyAppString = (String) applist.get(position).loadLabel(packageManager);
+        String friendlyAppString = AppInfoCache.getInstance(this)
+                .getLabel(applist.get(position)).toString();
         // always set CUSTOM_APP so we can fallback if something goes wrong with
         // packageManager.getPackageInfo
         setPackage(packageName, friendlyAppString);
@@ -36,7 +36,7 @@ import com.android.settingslib.search.SearchIndexable;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.nusantara.wings.UtilsNad;
+import com.nusantara.wings.DeviceCapabilities;
 
 import com.nusantara.support.preferences.SystemSettingSeekBarPreference;
 
@@ -56,7 +56,7 @@ public class LockscreenItems extends SettingsPreferenceFragment
         final PreferenceScreen prefScreen = getPreferenceScreen();
 
         mLockscreenBlur = (SystemSettingSeekBarPreference) findPreference(KEY_LOCKSCREEN_BLUR);
-        if (!UtilsNad.isBlurSupported()) {
+        if (!DeviceCapabilities.get(getContext()).isBlurSupported()) {
             mLockscreenBlur.setVisible(false);
         }
     }
@@ -88,7 +88,7 @@ public class LockscreenItems extends SettingsPreferenceFragment
                 @Override
                 public List<String> getNonIndexableKeys(Context context) {
                     List<String> keys = super.getNonIndexableKeys(context);
-                    if (!UtilsNad.isBlurSupported()) {
+                    if (!DeviceCapabilities.get(context).isBlurSupported()) {
                         keys.add(KEY_LOCKSCREEN_BLUR);
                     }
                     return keys;
@@ -15,7 +15,6 @@
  */
 package com.nusantara.wings.fragments.statusbar;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Color;
@@ -33,7 +32,9 @@ import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.SettingsPreferenceFragment;
 
 import com.nusantara.support.colorpicker.ColorPickerPreference;
-import com.nusantara.support.preferences.CustomSeekBarPreference;
+import com.nusantara.wings.SettingsSnapshot;
+import com.nusantara.wings.SettingsWriter;
+import com.nusantara.wings.preferences.TrackingSeekBarPreference;
 import com.android.settings.R;
 
 public class BatteryBar extends SettingsPreferenceFragment
@@ -52,7 +53,7 @@ public class BatteryBar extends SettingsPreferenceFragment
 
     private ListPreference mBatteryBarNoNavbar;
     private ListPreference mBatteryBarStyle;
-    private CustomSeekBarPreference mBatteryBarThickness;
+    private TrackingSeekBarPreference mBatteryBarThickness;
     private SwitchPreference mBatteryBarChargingAnimation;
     private SwitchPreference mBatteryBarUseChargingColor;
     private SwitchPreference mBatteryBarBlendColor;
@@ -61,6 +62,9 @@ public class BatteryBar extends SettingsPreferenceFragment
     private ColorPickerPreference mBatteryBarChargingColor;
     private ColorPickerPreference mBatteryBarBatteryLowColor;
 
+    private SettingsSnapshot mSettings;
+    private SettingsWriter mWriter;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,52 +72,63 @@ public class BatteryBar extends SettingsPreferenceFragment
         addPreferencesFromResource(R.xml.battery_bar);
 
         PreferenceScreen prefSet = getPreferenceScreen();
-        ContentResolver resolver = getActivity().getContentResolver();
+
+        mSettings = SettingsSnapshot.system(getContext(),
+                Settings.System.STATUSBAR_BATTERY_BAR,
+                Settings.System.STATUSBAR_BATTERY_BAR_STYLE,
+                Settings.System.STATUSBAR_BATTERY_BAR_COLOR,
+                Settings.System.STATUSBAR_BATTERY_BAR_CHARGING_COLOR,
+                Settings.System.STATUSBAR_BATTERY_BAR_BATTERY_LOW_COLOR,
+                Settings.System.STATUSBAR_BATTERY_BAR_ANIMATE,
+                Settings.System.STATUSBAR_BATTERY_BAR_THICKNESS);
+        mSettings.startObserving(this, this::onSettingChanged);
+        mWriter = new SettingsWriter(getContext());
 
         int intColor;
         String hexColor;
 
         mBatteryBarNoNavbar = (ListPreference) prefSet.findPreference(PREF_BATT_BAR_NO_NAVBAR);
-        mBatteryBarNoNavbar.setValue((Settings.System.getInt(resolver, Settings.System.STATUSBAR_BATTERY_BAR, 0)) + "");
+        mBatteryBarNoNavbar.setValue((mSettings.getInt(Settings.System.STATUSBAR_BATTERY_BAR, 0)) + "");
         mBatteryBarNoNavbar.setSummary(mBatteryBarNoNavbar.getEntry());
         mBatteryBarNoNavbar.setOnPreferenceChangeListener(this);
 
         mBatteryBarStyle = (ListPreference) prefSet.findPreference(PREF_BATT_BAR_STYLE);
-        mBatteryBarStyle.setValue((Settings.System.getInt(resolver,
+        mBatteryBarStyle.setValue((mSettings.getInt(
             Settings.System.STATUSBAR_BATTERY_BAR_STYLE, 0)) + "");
         mBatteryBarStyle.setSummary(mBatteryBarStyle.getEntry());
         mBatteryBarStyle.setOnPreferenceChangeListener(this);
 
         mBatteryBarColor = (ColorPickerPreference) prefSet.findPreference(PREF_BATT_BAR_COLOR);
-        intColor = Settings.System.getInt(resolver, Settings.System.STATUSBAR_BATTERY_BAR_COLOR, Color.WHITE);
+        intColor = mSettings.getInt(Settings.System.STATUSBAR_BATTERY_BAR_COLOR, Color.WHITE);
         hexColor = String.format("#%08x", (0xffffff & intColor));
         mBatteryBarColor.setNewPreviewColor(intColor);
         mBatteryBarColor.setSummary(hexColor);
         mBatteryBarColor.setOnPreferenceChangeListener(this);
 
         mBatteryBarChargingColor = (ColorPickerPreference) prefSet.findPreference(PREF_BATT_BAR_CHARGING_COLOR);
-        intColor = Settings.System.getInt(resolver, Settings.System.STATUSBAR_BATTERY_BAR_CHARGING_COLOR, Color.WHITE);
+        intColor = mSettings.getInt(Settings.System.STATUSBAR_BATTERY_BAR_CHARGING_COLOR, Color.WHITE);
         hexColor = String.format("#%08x", (0xffffff & intColor));
         mBatteryBarChargingColor.setNewPreviewColor(intColor);
         mBatteryBarChargingColor.setSummary(hexColor);
         mBatteryBarChargingColor.setOnPreferenceChangeListener(this);
 
         mBatteryBarBatteryLowColor = (ColorPickerPreference) prefSet.findPreference(PREF_BATT_BAR_BATTERY_LOW_COLOR);
-        intColor = Settings.System.getInt(resolver, Settings.System.STATUSBAR_BATTERY_BAR_BATTERY_LOW_COLOR, Color.WHITE);
+        intColor = mSettings.getInt(Settings.System.STATUSBAR_BATTERY_BAR_BATTERY_LOW_COLOR, Color.WHITE);
         hexColor = String.format("#%08x", (0xffffff & intColor));
         mBatteryBarBatteryLowColor.setNewPreviewColor(intColor);
         mBatteryBarBatteryLowColor.setSummary(hexColor);
         mBatteryBarBatteryLowColor.setOnPreferenceChangeListener(this);
 
         mBatteryBarChargingAnimation = (SwitchPreference) prefSet.findPreference(PREF_BATT_ANIMATE);
-        mBatteryBarChargingAnimation.setChecked(Settings.System.getInt(resolver,
+        mBatteryBarChargingAnimation.setChecked(mSettings.getInt(
             Settings.System.STATUSBAR_BATTERY_BAR_ANIMATE, 0) == 1);
         mBatteryBarChargingAnimation.setOnPreferenceChangeListener(this);
 
-        mBatteryBarThickness = (CustomSeekBarPreference) prefSet.findPreference(PREF_BATT_BAR_WIDTH);
-        mBatteryBarThickness.setValue(Settings.System.getInt(resolver,
+        mBatteryBarThickness = (TrackingSeekBarPreference) prefSet.findPreference(PREF_BATT_BAR_WIDTH);
+        mBatteryBarThickness.setValue(mSettings.getInt(
             Settings.System.STATUSBAR_BATTERY_BAR_THICKNESS, 1));
         mBatteryBarThickness.setOnPreferenceChangeListener(this);
+        mBatteryBarThickness.setOnStopTrackingListener(preference -> mWriter.flush());
 
         mBatteryBarUseChargingColor = (SwitchPreference) findPreference(PREF_BATT_USE_CHARGING_COLOR);
         mBatteryBarBlendColor = (SwitchPreference) findPreference(PREF_BATT_BLEND_COLOR);
@@ -124,62 +139,54 @@ public class BatteryBar extends SettingsPreferenceFragment
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        ContentResolver resolver = getActivity().getContentResolver();
         if (preference == mBatteryBarColor) {
             String hex = ColorPickerPreference.convertToARGB(Integer
                 .parseInt(String.valueOf(newValue)));
             preference.setSummary(hex);
             int intHex = ColorPickerPreference.convertToColorInt(hex);
-            Settings.System.putInt(resolver,
-                Settings.System.STATUSBAR_BATTERY_BAR_COLOR, intHex);
+            mWriter.putInt(Settings.System.STATUSBAR_BATTERY_BAR_COLOR, intHex);
             return true;
         } else if (preference == mBatteryBarChargingColor) {
             String hex = ColorPickerPreference.convertToARGB(Integer
                 .parseInt(String.valueOf(newValue)));
             preference.setSummary(hex);
             int intHex = ColorPickerPreference.convertToColorInt(hex);
-            Settings.System.putInt(resolver,
-                Settings.System.STATUSBAR_BATTERY_BAR_CHARGING_COLOR, intHex);
+            mWriter.putInt(Settings.System.STATUSBAR_BATTERY_BAR_CHARGING_COLOR, intHex);
             return true;
         } else if (preference == mBatteryBarBatteryLowColor) {
             String hex = ColorPickerPreference.convertToARGB(Integer
                 .parseInt(String.valueOf(newValue)));
             preference.setSummary(hex);
             int intHex = ColorPickerPreference.convertToColorInt(hex);
-            Settings.System.putInt(resolver,
-                Settings.System.STATUSBAR_BATTERY_BAR_BATTERY_LOW_COLOR, intHex);
+            mWriter.putInt(Settings.System.STATUSBAR_BATTERY_BAR_BATTERY_LOW_COLOR, intHex);
             return true;
         } else if (preference == mBatteryBarNoNavbar) {
             int val = Integer.parseInt((String) newValue);
             int index = mBatteryBarNoNavbar.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                Settings.System.STATUSBAR_BATTERY_BAR, val);
+            mSettings.putInt(Settings.System.STATUSBAR_BATTERY_BAR, val);
             mBatteryBarNoNavbar.setSummary(mBatteryBarNoNavbar.getEntries()[index]);
             updateBatteryBarOptions();
             return true;
         } else if (preference == mBatteryBarStyle) {
             int val = Integer.parseInt((String) newValue);
             int index = mBatteryBarStyle.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                Settings.System.STATUSBAR_BATTERY_BAR_STYLE, val);
+            mSettings.putInt(Settings.System.STATUSBAR_BATTERY_BAR_STYLE, val);
             mBatteryBarStyle.setSummary(mBatteryBarStyle.getEntries()[index]);
             return true;
         } else if (preference == mBatteryBarThickness) {
             int val =  (Integer) newValue;
-            Settings.System.putInt(resolver,
-                Settings.System.STATUSBAR_BATTERY_BAR_THICKNESS, val);
+            mWriter.putInt(Settings.System.STATUSBAR_BATTERY_BAR_THICKNESS, val);
             return true;
         } else if (preference == mBatteryBarChargingAnimation) {
             int val = ((Boolean) newValue) ? 1 : 0;
-            Settings.System.putInt(resolver, Settings.System.STATUSBAR_BATTERY_BAR_ANIMATE, val);
+            mSettings.putInt(Settings.System.STATUSBAR_BATTERY_BAR_ANIMATE, val);
             return true;
         }
         return false;
     }
 
     private void updateBatteryBarOptions() {
-        if (Settings.System.getInt(getActivity().getContentResolver(),
-            Settings.System.STATUSBAR_BATTERY_BAR, 0) == 0) {
+        if (mSettings.getInt(Settings.System.STATUSBAR_BATTERY_BAR, 0) == 0) {
             mBatteryBarStyle.setEnabled(false);
             mBatteryBarThickness.setEnabled(false);
             mBatteryBarChargingAnimation.setEnabled(false);
@@ -202,6 +209,17 @@ public class BatteryBar extends SettingsPreferenceFragment
         }
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        mWriter.flush();
+    }
+
+    private void onSettingChanged(String key) {
+        if (Settings.System.STATUSBAR_BATTERY_BAR.equals(key)) {
+            updateBatteryBarOptions();
+        }
+    }
 
     @Override
     public int getMetricsCategory() {
@@ -18,7 +18,6 @@ package com.nusantara.wings.fragments.statusbar;
 
 import android.app.AlertDialog;
 import android.content.Context;
-import android.content.ContentResolver;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnCancelListener;
 import android.content.res.Resources;
@@ -53,8 +52,10 @@ import java.util.Date;
 import java.util.List;
 
 import com.nusantara.support.preferences.SystemSettingSwitchPreference;
-import com.nusantara.support.preferences.CustomSeekBarPreference;
 import com.nusantara.support.colorpicker.ColorPickerPreference;
+import com.nusantara.wings.SettingsSnapshot;
+import com.nusantara.wings.SettingsWriter;
+import com.nusantara.wings.preferences.TrackingSeekBarPreference;
 
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
 public class ClockOptions extends SettingsPreferenceFragment
@@ -88,7 +89,10 @@ public class ClockOptions extends SettingsPreferenceFragment
     private ListPreference mClockDatePosition;
     private ListPreference mClockFontStyle;
     private ColorPickerPreference mClockColor;
-    private CustomSeekBarPreference mClockSize;
+    private TrackingSeekBarPreference mClockSize;
+
+    private SettingsSnapshot mSettings;
+    private SettingsWriter mWriter;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -96,25 +100,38 @@ public class ClockOptions extends SettingsPreferenceFragment
         addPreferencesFromResource(R.xml.nad_clock_options);
 
         final PreferenceScreen prefSet = getPreferenceScreen();
-        final ContentResolver resolver = getActivity().getContentResolver();
+
+        mSettings = SettingsSnapshot.system(getContext(),
+                Settings.System.STATUS_BAR_CLOCK,
+                Settings.System.STATUS_BAR_CLOCK_SECONDS,
+                Settings.System.STATUSBAR_CLOCK_STYLE,
+                Settings.System.STATUSBAR_CLOCK_AM_PM_STYLE,
+                Settings.System.STATUSBAR_CLOCK_DATE_DISPLAY,
+                Settings.System.STATUSBAR_CLOCK_DATE_STYLE,
+                Settings.System.STATUSBAR_CLOCK_DATE_FORMAT,
+                Settings.System.STATUSBAR_CLOCK_DATE_POSITION,
+                Settings.System.STATUS_BAR_CLOCK_COLOR,
+                Settings.System.STATUS_BAR_CLOCK_SIZE,
+                Settings.System.STATUS_BAR_CLOCK_FONT_STYLE);
+        mSettings.startObserving(this, null);
+        mWriter = new SettingsWriter(getContext());
 
         int intColor;
         String hexColor;
 
         // Clock settings
         mStatusBarClockShow = (SystemSettingSwitchPreference) findPreference(STATUS_BAR_CLOCK);
-        mStatusBarClockShow.setChecked((Settings.System.getInt(resolver,
+        mStatusBarClockShow.setChecked((mSettings.getInt(
                 Settings.System.STATUS_BAR_CLOCK, 1) == 1));
         mStatusBarClockShow.setOnPreferenceChangeListener(this);
 
         mStatusBarSecondsShow = (SystemSettingSwitchPreference) findPreference(STATUS_BAR_CLOCK_SECONDS);
-        mStatusBarSecondsShow.setChecked((Settings.System.getInt(resolver,
+        mStatusBarSecondsShow.setChecked((mSettings.getInt(
                 Settings.System.STATUS_BAR_CLOCK_SECONDS, 0) == 1));
         mStatusBarSecondsShow.setOnPreferenceChangeListener(this);
 
         mStatusBarClock = (ListPreference) findPreference(STATUS_BAR_CLOCK_STYLE);
-        int clockStyle = Settings.System.getInt(resolver,
-                Settings.System.STATUSBAR_CLOCK_STYLE, 0);
+        int clockStyle = mSettings.getInt(Settings.System.STATUSBAR_CLOCK_STYLE, 0);
         mStatusBarClock.setValue(String.valueOf(clockStyle));
         mStatusBarClock.setSummary(mStatusBarClock.getEntry());
         mStatusBarClock.setOnPreferenceChangeListener(this);
@@ -124,31 +141,27 @@ public class ClockOptions extends SettingsPreferenceFragment
             mStatusBarAmPm.setEnabled(false);
             mStatusBarAmPm.setSummary(R.string.status_bar_am_pm_info);
         } else {
-            int statusBarAmPm = Settings.System.getInt(resolver,
-                    Settings.System.STATUSBAR_CLOCK_AM_PM_STYLE, 2);
+            int statusBarAmPm = mSettings.getInt(Settings.System.STATUSBAR_CLOCK_AM_PM_STYLE, 2);
             mStatusBarAmPm.setValue(String.valueOf(statusBarAmPm));
             mStatusBarAmPm.setSummary(mStatusBarAmPm.getEntry());
             mStatusBarAmPm.setOnPreferenceChangeListener(this);
         }
 
         mClockDateDisplay = (ListPreference) findPreference(STATUS_BAR_CLOCK_DATE_DISPLAY);
-        int clockDateDisplay = Settings.System.getInt(resolver,
-                Settings.System.STATUSBAR_CLOCK_DATE_DISPLAY, 0);
+        int clockDateDisplay = mSettings.getInt(Settings.System.STATUSBAR_CLOCK_DATE_DISPLAY, 0);
         mClockDateDisplay.setValue(String.valueOf(clockDateDisplay));
         mClockDateDisplay.setSummary(mClockDateDisplay.getEntry());
         mClockDateDisplay.setOnPreferenceChangeListener(this);
 
         mClockDateStyle = (ListPreference) findPreference(STATUS_BAR_CLOCK_DATE_STYLE);
-        int clockDateStyle = Settings.System.getInt(resolver,
-                Settings.System.STATUSBAR_CLOCK_DATE_STYLE, 0);
+        int clockDateStyle = mSettings.getInt(Settings.System.STATUSBAR_CLOCK_DATE_STYLE, 0);
         mClockDateStyle.setValue(String.valueOf(clockDateStyle));
         mClockDateStyle.setSummary(mClockDateStyle.getEntry());
         mClockDateStyle.setOnPreferenceChangeListener(this);
 
         mClockDateFormat = (ListPreference) findPreference(STATUS_BAR_CLOCK_DATE_FORMAT);
         mClockDateFormat.setOnPreferenceChangeListener(this);
-        String value = Settings.System.getString(resolver,
-                Settings.System.STATUSBAR_CLOCK_DATE_FORMAT);
+        String value = mSettings.getString(Settings.System.STATUSBAR_CLOCK_DATE_FORMAT);
         if (value == null || value.isEmpty()) {
             value = "EEE";
         }
@@ -161,34 +174,32 @@ public class ClockOptions extends SettingsPreferenceFragment
         parseClockDateFormats();
 
         mClockDatePosition = (ListPreference) findPreference(STATUS_BAR_CLOCK_DATE_POSITION);
-        mClockDatePosition.setValue(Integer.toString(Settings.System.getInt(resolver,
+        mClockDatePosition.setValue(Integer.toString(mSettings.getInt(
                 Settings.System.STATUSBAR_CLOCK_DATE_POSITION, 0)));
         mClockDatePosition.setSummary(mClockDatePosition.getEntry());
         mClockDatePosition.setOnPreferenceChangeListener(this);
 
-        int clockDatePosition = Settings.System.getInt(resolver,
-                Settings.System.STATUSBAR_CLOCK_DATE_POSITION, 0);
+        int clockDatePosition = mSettings.getInt(Settings.System.STATUSBAR_CLOCK_DATE_POSITION, 0);
         mClockDatePosition.setValue(String.valueOf(clockDatePosition));
         mClockDatePosition.setSummary(mClockDatePosition.getEntry());
         mClockDatePosition.setOnPreferenceChangeListener(this);
 
         mClockColor = (ColorPickerPreference) findPreference(STATUS_BAR_CLOCK_COLOR);
         mClockColor.setOnPreferenceChangeListener(this);
-        intColor = Settings.System.getInt(resolver,
-                Settings.System.STATUS_BAR_CLOCK_COLOR, DEFAULT_STATUS_CLOCK_COLOR);
+        intColor = mSettings.getInt(Settings.System.STATUS_BAR_CLOCK_COLOR,
+                DEFAULT_STATUS_CLOCK_COLOR);
         hexColor = String.format("#%08x", (0xffffffff & intColor));
         mClockColor.setSummary(hexColor);
         mClockColor.setNewPreviewColor(intColor);
 
-        mClockSize = (CustomSeekBarPreference) findPreference(STATUS_BAR_CLOCK_SIZE);
-        int clockSize = Settings.System.getInt(resolver,
-                Settings.System.STATUS_BAR_CLOCK_SIZE, 14);
+        mClockSize = (TrackingSeekBarPreference) findPreference(STATUS_BAR_CLOCK_SIZE);
+        int clockSize = mSettings.getInt(Settings.System.STATUS_BAR_CLOCK_SIZE, 14);
         mClockSize.setValue(clockSize / 1);
         mClockSize.setOnPreferenceChangeListener(this);
+        mClockSize.setOnStopTrackingListener(preference -> mWriter.flush());
 
         mClockFontStyle = (ListPreference) findPreference(STATUS_BAR_CLOCK_FONT_STYLE);
-        int showClockFont = Settings.System.getInt(resolver,
-                Settings.System.STATUS_BAR_CLOCK_FONT_STYLE, 0);
+        int showClockFont = mSettings.getInt(Settings.System.STATUS_BAR_CLOCK_FONT_STYLE, 0);
         mClockFontStyle.setValue(String.valueOf(showClockFont));
         mClockFontStyle.setOnPreferenceChangeListener(this);
     }
@@ -197,36 +208,30 @@ public class ClockOptions extends SettingsPreferenceFragment
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
         AlertDialog dialog;
-        final ContentResolver resolver = getActivity().getContentResolver();
         if (preference == mStatusBarClockShow) {
             boolean value = (Boolean) newValue;
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUS_BAR_CLOCK, value ? 1 : 0);
+            mSettings.putInt(Settings.System.STATUS_BAR_CLOCK, value ? 1 : 0);
             return true;
         } else if (preference == mStatusBarSecondsShow) {
             boolean value = (Boolean) newValue;
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUS_BAR_CLOCK_SECONDS, value ? 1 : 0);
+            mSettings.putInt(Settings.System.STATUS_BAR_CLOCK_SECONDS, value ? 1 : 0);
             return true;
         } else if (preference == mStatusBarClock) {
             int clockStyle = Integer.parseInt((String) newValue);
             int index = mStatusBarClock.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUSBAR_CLOCK_STYLE, clockStyle);
+            mSettings.putInt(Settings.System.STATUSBAR_CLOCK_STYLE, clockStyle);
             mStatusBarClock.setSummary(mStatusBarClock.getEntries()[index]);
             return true;
         } else if (preference == mStatusBarAmPm) {
             int statusBarAmPm = Integer.valueOf((String) newValue);
             int index = mStatusBarAmPm.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUSBAR_CLOCK_AM_PM_STYLE, statusBarAmPm);
+            mSettings.putInt(Settings.System.STATUSBAR_CLOCK_AM_PM_STYLE, statusBarAmPm);
             mStatusBarAmPm.setSummary(mStatusBarAmPm.getEntries()[index]);
             return true;
         } else if (preference == mClockDateDisplay) {
             int clockDateDisplay = Integer.valueOf((String) newValue);
             int index = mClockDateDisplay.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUSBAR_CLOCK_DATE_DISPLAY, clockDateDisplay);
+            mSettings.putInt(Settings.System.STATUSBAR_CLOCK_DATE_DISPLAY, clockDateDisplay);
             mClockDateDisplay.setSummary(mClockDateDisplay.getEntries()[index]);
             if (clockDateDisplay == 0) {
                 mClockDateStyle.setEnabled(false);
@@ -241,8 +246,7 @@ public class ClockOptions extends SettingsPreferenceFragment
         } else if (preference == mClockDateStyle) {
             int clockDateStyle = Integer.valueOf((String) newValue);
             int index = mClockDateStyle.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUSBAR_CLOCK_DATE_STYLE, clockDateStyle);
+            mSettings.putInt(Settings.System.STATUSBAR_CLOCK_DATE_STYLE, clockDateStyle);
             mClockDateStyle.setSummary(mClockDateStyle.getEntries()[index]);
             parseClockDateFormats();
             return true;
@@ -254,8 +258,8 @@ public class ClockOptions extends SettingsPreferenceFragment
                 alert.setMessage(R.string.clock_date_string_edittext_summary);
 
                 final EditText input = new EditText(getActivity());
-                String oldText = Settings.System.getString(
-                    resolver, Settings.System.STATUSBAR_CLOCK_DATE_FORMAT);
+                String oldText = mSettings.getString(
+                    Settings.System.STATUSBAR_CLOCK_DATE_FORMAT);
                 if (oldText != null) {
                     input.setText(oldText);
                 }
@@ -267,8 +271,7 @@ public class ClockOptions extends SettingsPreferenceFragment
                         if (value.equals("")) {
                             return;
                         }
-                        Settings.System.putString(getActivity().getContentResolver(),
-                            Settings.System.STATUSBAR_CLOCK_DATE_FORMAT, value);
+                        mSettings.putString(Settings.System.STATUSBAR_CLOCK_DATE_FORMAT, value);
                         return;
                     }
                 });
@@ -283,16 +286,15 @@ public class ClockOptions extends SettingsPreferenceFragment
                 dialog.show();
             } else {
                 if ((String) newValue != null) {
-                    Settings.System.putString(getActivity().getContentResolver(),
-                        Settings.System.STATUSBAR_CLOCK_DATE_FORMAT, (String) newValue);
+                    mSettings.putString(Settings.System.STATUSBAR_CLOCK_DATE_FORMAT,
+                            (String) newValue);
                 }
             }
             return true;
         } else if (preference == mClockDatePosition) {
             int val = Integer.parseInt((String) newValue);
             int index = mClockDatePosition.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUSBAR_CLOCK_DATE_POSITION, val);
+            mSettings.putInt(Settings.System.STATUSBAR_CLOCK_DATE_POSITION, val);
             mClockDatePosition.setSummary(mClockDatePosition.getEntries()[index]);
             parseClockDateFormats();
             return true;
@@ -301,19 +303,16 @@ public class ClockOptions extends SettingsPreferenceFragment
                         Integer.valueOf(String.valueOf(newValue)));
                 preference.setSummary(hex);
                 int intHex = ColorPickerPreference.convertToColorInt(hex);
-                Settings.System.putInt(resolver,
-                        Settings.System.STATUS_BAR_CLOCK_COLOR, intHex);
+                mWriter.putInt(Settings.System.STATUS_BAR_CLOCK_COLOR, intHex);
                 return true;
         } else if (preference == mClockSize) {
             int width = ((Integer)newValue).intValue();
-            Settings.System.putInt(resolver,
-                    Settings.System.STATUS_BAR_CLOCK_SIZE, width);
+            mWriter.putInt(Settings.System.STATUS_BAR_CLOCK_SIZE, width);
             return true;
         } else if (preference == mClockFontStyle) {
             int showClockFont = Integer.valueOf((String) newValue);
             int index = mClockFontStyle.findIndexOfValue((String) newValue);
-            Settings.System.putInt(resolver, Settings.System.
-                STATUS_BAR_CLOCK_FONT_STYLE, showClockFont);
+            mSettings.putInt(Settings.System.STATUS_BAR_CLOCK_FONT_STYLE, showClockFont);
             mClockFontStyle.setSummary(mClockFontStyle.getEntries()[index]);
             return true;
         }
@@ -327,8 +326,7 @@ public class ClockOptions extends SettingsPreferenceFragment
         Date now = new Date();
 
         int lastEntry = dateEntries.length - 1;
-        int dateFormat = Settings.System.getInt(getActivity()
-                .getContentResolver(), Settings.System.STATUSBAR_CLOCK_DATE_STYLE, 0);
+        int dateFormat = mSettings.getInt(Settings.System.STATUSBAR_CLOCK_DATE_STYLE, 0);
         for (int i = 0; i < dateEntries.length; i++) {
             if (i == lastEntry) {
                 parsedDateEntries[i] = dateEntries[i];
@@ -354,6 +352,12 @@ public class ClockOptions extends SettingsPreferenceFragment
         super.onResume();
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        mWriter.flush();
+    }
+
     @Override
     public int getMetricsCategory() {
         return MetricsProto.MetricsEvent.NUSANTARA_PRJ;
@@ -19,49 +19,108 @@ package com.nusantara.wings.fragments.system;
 
 import android.app.ActivityManager;
 import android.annotation.Nullable;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
+import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.icu.text.AlphabeticIndex;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.UserHandle;
+import android.provider.Settings;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.CompoundButton;
 import android.widget.ImageView;
-import android.widget.ListView;
+import android.widget.SearchView;
 import android.widget.SectionIndexer;
 import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
-import com.android.internal.util.custom.cutout.CutoutFullscreenController;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
 
 public class DisplayCutoutForceFullscreenSettings extends SettingsPreferenceFragment
         implements ApplicationsState.Callbacks {
 
+    private static final int MENU_SEARCH = Menu.FIRST;
+    private static final int MENU_BULK_EDIT = Menu.FIRST + 1;
+    private static final int MENU_SELECT_ALL = Menu.FIRST + 2;
+    private static final int MENU_SELECT_NONE = Menu.FIRST + 3;
+    private static final int MENU_INVERT = Menu.FIRST + 4;
+    private static final int MENU_APPLY = Menu.FIRST + 5;
+    private static final int MENU_CANCEL = Menu.FIRST + 6;
+
+    private static final String APPS_SEPARATOR = ",";
+
+    private static final Object PAYLOAD_CHECKED = new Object();
+    private static final int ITEM_VIEW_CACHE_SIZE = 8;
+    private static final long SECTION_INDICATOR_TIMEOUT_MS = 800;
+
+    // ApplicationsState updates its entries in place, so rows are compared by
+    // the values captured when their list was built
+    private static final DiffUtil.ItemCallback<Row> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(Row oldItem, Row newItem) {
+            return oldItem.entry.id == newItem.entry.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(Row oldItem, Row newItem) {
+            return TextUtils.equals(oldItem.label, newItem.label)
+                    && oldItem.checked == newItem.checked;
+        }
+
+        @Override
+        public Object getChangePayload(Row oldItem, Row newItem) {
+            return TextUtils.equals(oldItem.label, newItem.label) ? PAYLOAD_CHECKED : null;
+        }
+    };
+
     private AllPackagesAdapter mAllPackagesAdapter;
     private ApplicationsState mApplicationsState;
     private ApplicationsState.Session mSession;
     private ActivityFilter mActivityFilter;
-    private Map<String, ApplicationsState.AppEntry> mEntryMap =
-            new HashMap<String, ApplicationsState.AppEntry>();
 
-    private ListView mUserListView;
-    private CutoutFullscreenController mCutoutForceFullscreenSettings;
+    private List<ApplicationsState.AppEntry> mAllEntries = new ArrayList<>();
+    private String mQuery = "";
+    private int mListGeneration;
+
+    private RecyclerView mUserListView;
+    private View mEmptyView;
+    private TextView mSectionIndicator;
+    private View mSectionScroller;
+    private View mSectionScrollerThumb;
+
+    // Apps forced to full screen, rows are bound from this instead of the controller
+    private final Set<String> mForcedApps = new HashSet<>();
+    // Selection while bulk editing, null otherwise
+    private Set<String> mPendingApps;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -73,28 +132,136 @@ public class DisplayCutoutForceFullscreenSettings extends SettingsPreferenceFrag
         mActivityFilter = new ActivityFilter(getActivity().getPackageManager());
         mAllPackagesAdapter = new AllPackagesAdapter(getActivity());
 
-        mCutoutForceFullscreenSettings = new CutoutFullscreenController(getContext());
+        loadForcedApps();
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        getActivity().registerReceiver(mPackageReceiver, filter);
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         getActivity().getActionBar().setTitle(R.string.display_cutout_force_fullscreen_title);
+        setHasOptionsMenu(true);
         return inflater.inflate(R.layout.cutout_force_fullscreen_layout, container, false);
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+
+        mUserListView.removeOnScrollListener(mSectionScrollListener);
+        mSectionIndicator.removeCallbacks(mHideSectionIndicator);
+        mSectionScroller.setOnTouchListener(null);
+        mUserListView = null;
+        mEmptyView = null;
+        mSectionIndicator = null;
+        mSectionScroller = null;
+        mSectionScrollerThumb = null;
     }
 
     @Override
     public void onViewCreated(final View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        mUserListView = (ListView) view.findViewById(R.id.user_list_view);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(getActivity());
+        layoutManager.setItemPrefetchEnabled(true);
+        mUserListView = (RecyclerView) view.findViewById(R.id.user_list_view);
+        mUserListView.setLayoutManager(layoutManager);
+        mUserListView.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
         mUserListView.setAdapter(mAllPackagesAdapter);
-        mUserListView.setEmptyView(view.findViewById(R.id.user_list_empty_view));
+        mUserListView.addOnScrollListener(mSectionScrollListener);
+        mEmptyView = view.findViewById(R.id.user_list_empty_view);
+        mSectionIndicator = (TextView) view.findViewById(R.id.section_indicator);
+        mSectionScroller = view.findViewById(R.id.section_scroller);
+        mSectionScrollerThumb = view.findViewById(R.id.section_scroller_thumb);
+        mSectionScroller.setOnTouchListener(mSectionScrollerTouchListener);
+        updateEmptyView();
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        final SearchView searchView = new SearchView(getActivity());
+        searchView.setQueryHint(getString(R.string.cutout_force_fullscreen_search));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                setQuery(newText);
+                return true;
+            }
+        });
+        final MenuItem item = menu.add(0, MENU_SEARCH, 0, R.string.cutout_force_fullscreen_search);
+        item.setIcon(android.R.drawable.ic_menu_search);
+        item.setShowAsAction(MenuItem.SHOW_AS_ACTION_IF_ROOM
+                | MenuItem.SHOW_AS_ACTION_COLLAPSE_ACTION_VIEW);
+        item.setActionView(searchView);
+
+        menu.add(0, MENU_BULK_EDIT, 0, R.string.cutout_force_fullscreen_bulk_edit);
+        menu.add(0, MENU_SELECT_ALL, 0, R.string.cutout_force_fullscreen_select_all);
+        menu.add(0, MENU_SELECT_NONE, 0, R.string.cutout_force_fullscreen_select_none);
+        menu.add(0, MENU_INVERT, 0, R.string.cutout_force_fullscreen_invert);
+        menu.add(0, MENU_APPLY, 0, R.string.cutout_force_fullscreen_apply)
+                .setShowAsAction(MenuItem.SHOW_AS_ACTION_IF_ROOM);
+        menu.add(0, MENU_CANCEL, 0, android.R.string.cancel);
+    }
+
+    @Override
+    public void onPrepareOptionsMenu(Menu menu) {
+        final boolean bulk = isBulkEditing();
+        menu.findItem(MENU_BULK_EDIT).setVisible(!bulk);
+        menu.findItem(MENU_SELECT_ALL).setVisible(bulk);
+        menu.findItem(MENU_SELECT_NONE).setVisible(bulk);
+        menu.findItem(MENU_INVERT).setVisible(bulk);
+        menu.findItem(MENU_APPLY).setVisible(bulk);
+        menu.findItem(MENU_CANCEL).setVisible(bulk);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        final List<ApplicationsState.AppEntry> shown = mAllPackagesAdapter.mList.entries;
+        switch (item.getItemId()) {
+            case MENU_BULK_EDIT:
+                mPendingApps = new HashSet<>(mForcedApps);
+                break;
+            case MENU_SELECT_ALL:
+                for (ApplicationsState.AppEntry entry : shown) {
+                    mPendingApps.add(entry.info.packageName);
+                }
+                break;
+            case MENU_SELECT_NONE:
+                for (ApplicationsState.AppEntry entry : shown) {
+                    mPendingApps.remove(entry.info.packageName);
+                }
+                break;
+            case MENU_INVERT:
+                for (ApplicationsState.AppEntry entry : shown) {
+                    final String packageName = entry.info.packageName;
+                    if (!mPendingApps.remove(packageName)) {
+                        mPendingApps.add(packageName);
+                    }
+                }
+                break;
+            case MENU_APPLY:
+                applyPendingApps();
+                break;
+            case MENU_CANCEL:
+                mPendingApps = null;
+                break;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+        getActivity().invalidateOptionsMenu();
+        mAllPackagesAdapter.notifySelectionChanged();
+        return true;
     }
 
     @Override
@@ -108,13 +275,13 @@ public class DisplayCutoutForceFullscreenSettings extends SettingsPreferenceFrag
     public void onDestroy() {
         super.onDestroy();
 
+        getActivity().unregisterReceiver(mPackageReceiver);
         mSession.onPause();
         mSession.onDestroy();
     }
 
     @Override
     public void onPackageListChanged() {
-        mActivityFilter.updateLauncherInfoList();
         rebuild();
     }
 
@@ -122,7 +289,6 @@ public class DisplayCutoutForceFullscreenSettings extends SettingsPreferenceFrag
     public void onRebuildComplete(ArrayList<ApplicationsState.AppEntry> entries) {
         if (entries != null) {
             handleAppEntries(entries);
-            mAllPackagesAdapter.notifyDataSetChanged();
         }
     }
 
@@ -146,144 +312,286 @@ public class DisplayCutoutForceFullscreenSettings extends SettingsPreferenceFrag
     @Override
     public void onRunningStateChanged(boolean running) {}
 
-    private void handleAppEntries(List<ApplicationsState.AppEntry> entries) {
-        final ArrayList<String> sections = new ArrayList<String>();
-        final ArrayList<Integer> positions = new ArrayList<Integer>();
-        final PackageManager pm = getPackageManager();
-        String lastSectionIndex = null;
-        int offset = 0;
-
-        for (int i = 0; i < entries.size(); i++) {
-            final ApplicationInfo info = entries.get(i).info;
-            final String label = (String) info.loadLabel(pm);
-            final String sectionIndex;
-
-            if (!info.enabled) {
-                sectionIndex = "--"; // XXX
-            } else if (TextUtils.isEmpty(label)) {
-                sectionIndex = "";
-            } else {
-                sectionIndex = label.substring(0, 1).toUpperCase();
-            }
+    private boolean isBulkEditing() {
+        return mPendingApps != null;
+    }
+
+    private Set<String> getSelection() {
+        return isBulkEditing() ? mPendingApps : mForcedApps;
+    }
 
-            if (lastSectionIndex == null ||
-                    !TextUtils.equals(sectionIndex, lastSectionIndex)) {
-                sections.add(sectionIndex);
-                positions.add(offset);
-                lastSectionIndex = sectionIndex;
+    private void loadForcedApps() {
+        final String apps = Settings.System.getStringForUser(getContentResolver(),
+                Settings.System.FORCE_FULLSCREEN_CUTOUT_APPS, UserHandle.USER_CURRENT);
+        mForcedApps.clear();
+        if (!TextUtils.isEmpty(apps)) {
+            for (String packageName : TextUtils.split(apps, APPS_SEPARATOR)) {
+                if (!TextUtils.isEmpty(packageName)) {
+                    mForcedApps.add(packageName);
+                }
             }
+        }
+    }
 
-            offset++;
+    /**
+     * Persists the bulk selection with a single write.
+     */
+    private void applyPendingApps() {
+        final boolean changed = !mPendingApps.equals(mForcedApps);
+        mForcedApps.clear();
+        mForcedApps.addAll(mPendingApps);
+        mPendingApps = null;
+        if (changed) {
+            saveForcedApps();
         }
+    }
+
+    /**
+     * Writes {@link #mForcedApps} as a whole. Single toggles and bulk edits
+     * both go through here, so neither can overwrite the other with a list
+     * that has not caught up yet.
+     */
+    private void saveForcedApps() {
+        Settings.System.putStringForUser(getContentResolver(),
+                Settings.System.FORCE_FULLSCREEN_CUTOUT_APPS,
+                TextUtils.join(APPS_SEPARATOR, mForcedApps), UserHandle.USER_CURRENT);
+        Toast.makeText(getActivity(),
+            getActivity().getString(R.string.display_cutout_force_fullscreen_restart_app),
+            Toast.LENGTH_SHORT).show();
+    }
 
-        mAllPackagesAdapter.setEntries(entries, sections, positions);
-        mEntryMap.clear();
-        for (ApplicationsState.AppEntry e : entries) {
-            mEntryMap.put(e.info.packageName, e);
+    private void handleAppEntries(List<ApplicationsState.AppEntry> entries) {
+        mAllEntries = entries;
+        updateList(entries, mQuery);
+    }
+
+    /**
+     * Narrows the list to apps whose label contains {@code query}. A query
+     * extending the one currently shown only filters the rows already shown.
+     */
+    private void setQuery(String query) {
+        query = query.trim().toLowerCase(Locale.getDefault());
+        if (query.equals(mQuery)) {
+            return;
         }
+        final AppList shown = mAllPackagesAdapter.mList;
+        final List<ApplicationsState.AppEntry> source =
+                shown.allEntries == mAllEntries && query.startsWith(shown.query)
+                ? shown.entries : mAllEntries;
+        mQuery = query;
+        updateList(source, query);
+    }
+
+    private void updateList(List<ApplicationsState.AppEntry> source, String query) {
+        final int generation = ++mListGeneration;
+        final List<ApplicationsState.AppEntry> allEntries = mAllEntries;
+        final Set<String> selection = new HashSet<>(getSelection());
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final AppList list = AppList.build(allEntries, source, query, selection);
+            ThreadUtils.postOnMainThread(() -> {
+                // A newer rebuild or query superseded this one
+                if (generation == mListGeneration) {
+                    mAllPackagesAdapter.setList(list);
+                }
+            });
+        });
     }
 
     private void rebuild() {
         mSession.rebuild(mActivityFilter, ApplicationsState.ALPHA_COMPARATOR);
     }
 
-    private class AllPackagesAdapter extends BaseAdapter
+    private void updateEmptyView() {
+        if (mEmptyView != null) {
+            final boolean empty = mAllPackagesAdapter.getItemCount() == 0;
+            mEmptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+            mSectionScroller.setVisibility(empty ? View.GONE : View.VISIBLE);
+        }
+    }
+
+    /**
+     * Shows {@code section} in the indicator and moves the scroller thumb to
+     * its place on the track.
+     */
+    private void showSection(int section) {
+        final Object[] sections = mAllPackagesAdapter.getSections();
+        if (section < 0 || section >= sections.length) {
+            return;
+        }
+        mSectionIndicator.removeCallbacks(mHideSectionIndicator);
+        mSectionIndicator.setText((String) sections[section]);
+        mSectionIndicator.setVisibility(View.VISIBLE);
+
+        final int range = mSectionScroller.getHeight() - mSectionScrollerThumb.getHeight();
+        mSectionScrollerThumb.setTranslationY(sections.length > 1
+                ? range * section / (float) (sections.length - 1) : 0);
+    }
+
+    private final Runnable mHideSectionIndicator = () -> {
+        if (mSectionIndicator != null) {
+            mSectionIndicator.setVisibility(View.GONE);
+        }
+    };
+
+    // Shows the section of the first visible row while the list is scrolled
+    private final RecyclerView.OnScrollListener mSectionScrollListener =
+            new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                mSectionIndicator.postDelayed(mHideSectionIndicator,
+                        SECTION_INDICATOR_TIMEOUT_MS);
+            } else {
+                mSectionIndicator.removeCallbacks(mHideSectionIndicator);
+            }
+        }
+
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if (dy == 0) {
+                return;
+            }
+            final int first = ((LinearLayoutManager) recyclerView.getLayoutManager())
+                    .findFirstVisibleItemPosition();
+            showSection(mAllPackagesAdapter.getSectionForPosition(first));
+        }
+    };
+
+    // Dragging along the track jumps to the section under the finger
+    private final View.OnTouchListener mSectionScrollerTouchListener = (v, event) -> {
+        final int sectionCount = mAllPackagesAdapter.getSections().length;
+        if (sectionCount == 0) {
+            return false;
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+                v.setPressed(true);
+                final int section = Math.max(0, Math.min(sectionCount - 1,
+                        (int) (event.getY() / v.getHeight() * sectionCount)));
+                ((LinearLayoutManager) mUserListView.getLayoutManager())
+                        .scrollToPositionWithOffset(
+                                mAllPackagesAdapter.getPositionForSection(section), 0);
+                showSection(section);
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                v.setPressed(false);
+                mSectionIndicator.postDelayed(mHideSectionIndicator,
+                        SECTION_INDICATOR_TIMEOUT_MS);
+                return true;
+            default:
+                return false;
+        }
+    };
+
+    private final BroadcastReceiver mPackageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            final String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            if (packageName == null) {
+                return;
+            }
+            final boolean removed = Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && !intent.getBooleanExtra(Intent.EXTRA_REPLACING, false);
+            ThreadUtils.postOnBackgroundThread(() -> {
+                final boolean changed = removed
+                        ? mActivityFilter.removePackage(packageName)
+                        : mActivityFilter.updatePackage(packageName);
+                // ApplicationsState rebuilds for the same broadcast by itself, only
+                // rebuild again if that one may have filtered with the old set
+                if (changed) {
+                    ThreadUtils.postOnMainThread(() -> {
+                        if (isAdded()) {
+                            rebuild();
+                        }
+                    });
+                }
+            });
+        }
+    };
+
+    private class AllPackagesAdapter extends RecyclerView.Adapter<ViewHolder>
             implements SectionIndexer {
 
         private final LayoutInflater mInflater;
-        private List<ApplicationsState.AppEntry> mEntries = new ArrayList<>();
-        private String[] mSections;
-        private int[] mPositions;
+        private final AsyncListDiffer<Row> mDiffer =
+                new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        // Switched together with the differ's list so sections always match the rows
+        private AppList mList = AppList.EMPTY;
 
         public AllPackagesAdapter(Context context) {
             mInflater = LayoutInflater.from(context);
-            mActivityFilter = new ActivityFilter(context.getPackageManager());
+            setHasStableIds(true);
         }
 
         @Override
-        public int getCount() {
-            return mEntries.size();
+        public int getItemCount() {
+            return mDiffer.getCurrentList().size();
         }
 
         @Override
-        public Object getItem(int position) {
-            return mEntries.get(position);
+        public long getItemId(int position) {
+            return mDiffer.getCurrentList().get(position).entry.id;
         }
 
         @Override
-        public boolean hasStableIds() {
-            return true;
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new ViewHolder(mInflater.inflate(
+                    R.layout.cutout_force_fullscreen_list_item, parent, false));
         }
 
         @Override
-        public long getItemId(int position) {
-            return mEntries.get(position).id;
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            Row row = mDiffer.getCurrentList().get(position);
+            ApplicationsState.AppEntry entry = row.entry;
+            holder.entry = entry;
+            holder.title.setText(row.label);
+            mApplicationsState.ensureIcon(entry);
+            holder.icon.setImageDrawable(entry.icon);
+            holder.bindState();
         }
 
         @Override
-        public View getView(int position, View convertView, ViewGroup parent) {
-            ApplicationsState.AppEntry entry = mEntries.get(position);
-            ViewHolder holder;
-
-            if (convertView == null) {
-                holder = new ViewHolder(mInflater.inflate(
-                        R.layout.cutout_force_fullscreen_list_item, parent, false));
+        public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+            if (payloads.contains(PAYLOAD_CHECKED)) {
+                holder.bindState();
             } else {
-                holder = (ViewHolder) convertView.getTag();
-            }
-
-            if (entry == null) {
-                return holder.rootView;
+                onBindViewHolder(holder, position);
             }
+        }
 
-            holder.title.setText(entry.label);
-            mApplicationsState.ensureIcon(entry);
-            holder.icon.setImageDrawable(entry.icon);
-            holder.state.setTag(entry);
-            holder.state.setChecked(mCutoutForceFullscreenSettings.shouldForceCutoutFullscreen(entry.info.packageName));
-            holder.state.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                final ApplicationsState.AppEntry appEntry =
-                        (ApplicationsState.AppEntry) buttonView.getTag();
-
-                if (isChecked) {
-                    mCutoutForceFullscreenSettings.addApp(appEntry.info.packageName);
-                } else {
-                    mCutoutForceFullscreenSettings.removeApp(appEntry.info.packageName);
-                }
-                Toast.makeText(getActivity(),
-                    getActivity().getString(R.string.display_cutout_force_fullscreen_restart_app),
-                    Toast.LENGTH_SHORT).show();
+        private void setList(AppList list) {
+            mDiffer.submitList(list.rows, () -> {
+                mList = list;
+                updateEmptyView();
             });
-            return holder.rootView;
         }
 
-        private void setEntries(List<ApplicationsState.AppEntry> entries,
-                List<String> sections, List<Integer> positions) {
-            mEntries = entries;
-            mSections = sections.toArray(new String[sections.size()]);
-            mPositions = new int[positions.size()];
-            for (int i = 0; i < positions.size(); i++) {
-                mPositions[i] = positions.get(i);
-            }
-            notifyDataSetChanged();
+        /**
+         * Rebinds only the switches, after the selection changed.
+         */
+        private void notifySelectionChanged() {
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_CHECKED);
         }
 
         @Override
         public int getPositionForSection(int section) {
-            if (section < 0 || section >= mSections.length) {
+            if (section < 0 || section >= mList.sections.length) {
                 return -1;
             }
 
-            return mPositions[section];
+            return mList.positions[section];
         }
 
         @Override
         public int getSectionForPosition(int position) {
-            if (position < 0 || position >= getCount()) {
+            if (position < 0 || position >= getItemCount()) {
                 return -1;
             }
 
-            final int index = Arrays.binarySearch(mPositions, position);
+            final int index = Arrays.binarySearch(mList.positions, position);
 
             /*
              * Consider this example: section positions are 0, 3, 5; the supplied
@@ -298,70 +606,233 @@ public class DisplayCutoutForceFullscreenSettings extends SettingsPreferenceFrag
 
         @Override
         public Object[] getSections() {
-            return mSections;
+            return mList.sections;
         }
     }
 
-    private static class ViewHolder {
-        private TextView title;
-        private ImageView icon;
-        private Switch state;
-        private View rootView;
+    /**
+     * What a row showed when its list was built.
+     */
+    private static final class Row {
+        final ApplicationsState.AppEntry entry;
+        final String label;
+        final boolean checked;
+
+        Row(ApplicationsState.AppEntry entry, boolean checked) {
+            this.entry = entry;
+            this.label = entry.label;
+            this.checked = checked;
+        }
+    }
+
+    /**
+     * Rows shown by the adapter together with their section index, built off
+     * the main thread and swapped in as a whole.
+     */
+    private static final class AppList {
+
+        static final AppList EMPTY = new AppList(new ArrayList<>(), "",
+                new ArrayList<>(), new ArrayList<>(), new String[0], new int[0]);
+
+        // The rebuild result the rows were filtered from
+        final List<ApplicationsState.AppEntry> allEntries;
+        final String query;
+        final List<ApplicationsState.AppEntry> entries;
+        final List<Row> rows;
+        final String[] sections;
+        final int[] positions;
+
+        private AppList(List<ApplicationsState.AppEntry> allEntries, String query,
+                List<ApplicationsState.AppEntry> entries, List<Row> rows,
+                String[] sections, int[] positions) {
+            this.allEntries = allEntries;
+            this.query = query;
+            this.entries = entries;
+            this.rows = rows;
+            this.sections = sections;
+            this.positions = positions;
+        }
+
+        static AppList build(List<ApplicationsState.AppEntry> allEntries,
+                List<ApplicationsState.AppEntry> source, String query, Set<String> selection) {
+            final Locale locale = Locale.getDefault();
+            final List<ApplicationsState.AppEntry> entries = new ArrayList<>();
+            final List<Row> rows = new ArrayList<>();
+            for (ApplicationsState.AppEntry entry : source) {
+                if (query.isEmpty() || (entry.label != null
+                        && entry.label.toLowerCase(locale).contains(query))) {
+                    entries.add(entry);
+                    rows.add(new Row(entry, selection.contains(entry.info.packageName)));
+                }
+            }
+
+            // Labels were loaded by ApplicationsState, buckets follow the locale's alphabet
+            final AlphabeticIndex.ImmutableIndex<?> index =
+                    new AlphabeticIndex<>(locale).addLabels(Locale.ENGLISH).buildImmutableIndex();
+            final ArrayList<String> sections = new ArrayList<String>();
+            final ArrayList<Integer> positions = new ArrayList<Integer>();
+            String lastSectionIndex = null;
+
+            for (int i = 0; i < entries.size(); i++) {
+                final ApplicationsState.AppEntry entry = entries.get(i);
+                final String sectionIndex;
+
+                if (!entry.info.enabled) {
+                    sectionIndex = "--"; // XXX
+                } else if (TextUtils.isEmpty(entry.label)) {
+                    sectionIndex = "";
+                } else {
+                    sectionIndex = index.getBucket(index.getBucketIndex(entry.label)).getLabel();
+                }
+
+                if (lastSectionIndex == null ||
+                        !TextUtils.equals(sectionIndex, lastSectionIndex)) {
+                    sections.add(sectionIndex);
+                    positions.add(i);
+                    lastSectionIndex = sectionIndex;
+                }
+            }
+
+            final int[] positionArray = new int[positions.size()];
+            for (int i = 0; i < positions.size(); i++) {
+                positionArray[i] = positions.get(i);
+            }
+            return new AppList(allEntries, query, entries, rows,
+                    sections.toArray(new String[sections.size()]), positionArray);
+        }
+    }
+
+    private class ViewHolder extends RecyclerView.ViewHolder
+            implements CompoundButton.OnCheckedChangeListener {
+        private final TextView title;
+        private final ImageView icon;
+        private final Switch state;
+        private ApplicationsState.AppEntry entry;
 
         private ViewHolder(View view) {
+            super(view);
             this.title = (TextView) view.findViewById(R.id.app_name);
             this.icon = (ImageView) view.findViewById(R.id.app_icon);
             this.state = (Switch) view.findViewById(R.id.state);
-            this.rootView = view;
+        }
+
+        private void bindState() {
+            // Restoring the state of a recycled row must not persist it
+            state.setOnCheckedChangeListener(null);
+            state.setChecked(getSelection().contains(entry.info.packageName));
+            state.setOnCheckedChangeListener(this);
+        }
 
-            view.setTag(this);
+        @Override
+        public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+            final String packageName = entry.info.packageName;
+
+            if (isBulkEditing()) {
+                if (isChecked) {
+                    mPendingApps.add(packageName);
+                } else {
+                    mPendingApps.remove(packageName);
+                }
+                return;
+            }
+
+            if (isChecked) {
+                mForcedApps.add(packageName);
+            } else {
+                mForcedApps.remove(packageName);
+            }
+            saveForcedApps();
         }
     }
 
-    private class ActivityFilter implements ApplicationsState.AppFilter {
+    /**
+     * Shows launchable apps that are not hidden. Launcher packages are kept in
+     * a hash set that is built with the first rebuild and then updated per
+     * package from package broadcasts, so filtering an entry is a set lookup.
+     */
+    private static class ActivityFilter implements ApplicationsState.AppFilter {
+
+        private static final Set<String> HIDDEN_APPS = new HashSet<>(Arrays.asList(
+                "com.android.settings", "com.android.documentsui",
+                "com.android.fmradio", "com.caf.fmradio", "com.android.stk",
+                "com.google.android.calculator", "com.google.android.calendar",
+                "com.google.android.deskclock", "com.google.android.contacts",
+                "com.google.android.apps.messaging", "com.google.android.googlequicksearchbox",
+                "com.android.vending", "com.google.android.dialer",
+                "com.google.android.apps.wallpaper", "com.google.android.as"));
 
         private final PackageManager mPackageManager;
-        private final List<String> mLauncherResolveInfoList = new ArrayList<String>();
+        private final Set<String> mLauncherPackages = new HashSet<String>();
+
+        private boolean mLoaded;
 
         private ActivityFilter(PackageManager packageManager) {
             this.mPackageManager = packageManager;
-
-            updateLauncherInfoList();
         }
 
-        public void updateLauncherInfoList() {
+        private static Intent getLauncherIntent() {
             Intent i = new Intent(Intent.ACTION_MAIN);
             i.addCategory(Intent.CATEGORY_LAUNCHER);
-            List<ResolveInfo> resolveInfoList = mPackageManager.queryIntentActivities(i, 0);
+            return i;
+        }
 
-            synchronized (mLauncherResolveInfoList) {
-                mLauncherResolveInfoList.clear();
-                for (ResolveInfo ri : resolveInfoList) {
-                    mLauncherResolveInfoList.add(ri.activityInfo.packageName);
-                }
+        /**
+         * Re-resolves the launcher activities of a single package. Queries the
+         * package manager, so it should not be called on the main thread.
+         *
+         * @return whether the package was added to or removed from the set
+         */
+        public boolean updatePackage(String packageName) {
+            Intent i = getLauncherIntent();
+            i.setPackage(packageName);
+            boolean launchable = !mPackageManager.queryIntentActivities(i, 0).isEmpty();
+
+            synchronized (mLauncherPackages) {
+                return launchable
+                        ? mLauncherPackages.add(packageName)
+                        : mLauncherPackages.remove(packageName);
             }
         }
 
-        @Override
-        public void init() {}
+        /**
+         * @return whether the package was in the set
+         */
+        public boolean removePackage(String packageName) {
+            synchronized (mLauncherPackages) {
+                return mLauncherPackages.remove(packageName);
+            }
+        }
 
-        private final String[] hideApps = {"com.android.settings", "com.android.documentsui",
-            "com.android.fmradio", "com.caf.fmradio", "com.android.stk",
-            "com.google.android.calculator", "com.google.android.calendar",
-            "com.google.android.deskclock", "com.google.android.contacts",
-            "com.google.android.apps.messaging", "com.google.android.googlequicksearchbox",
-            "com.android.vending", "com.google.android.dialer",
-            "com.google.android.apps.wallpaper", "com.google.android.as"};
+        /**
+         * Called by ApplicationsState on its background thread before every
+         * rebuild, the first one resolves all launcher activities.
+         */
+        @Override
+        public void init() {
+            synchronized (mLauncherPackages) {
+                if (mLoaded) {
+                    return;
+                }
+            }
+            List<ResolveInfo> resolveInfoList =
+                    mPackageManager.queryIntentActivities(getLauncherIntent(), 0);
+            synchronized (mLauncherPackages) {
+                for (ResolveInfo ri : resolveInfoList) {
+                    mLauncherPackages.add(ri.activityInfo.packageName);
+                }
+                mLoaded = true;
+            }
+        }
 
         @Override
         public boolean filterApp(ApplicationsState.AppEntry entry) {
-            boolean show = !mAllPackagesAdapter.mEntries.contains(entry.info.packageName);
-            if (show) {
-                synchronized (mLauncherResolveInfoList) {
-                    show = mLauncherResolveInfoList.contains(entry.info.packageName) && !Arrays.asList(hideApps).contains(entry.info.packageName);
-                }
+            final String packageName = entry.info.packageName;
+            if (HIDDEN_APPS.contains(packageName)) {
+                return false;
+            }
+            synchronized (mLauncherPackages) {
+                return mLauncherPackages.contains(packageName);
             }
-            return show;
         }
     }
 
@@ -44,6 +44,8 @@ import com.nusantara.support.colorpicker.ColorPickerPreference;
 import com.nusantara.support.preferences.SystemSettingSwitchPreference;
 import com.nusantara.support.preferences.SystemSettingListPreference;
 import com.nusantara.support.preferences.CustomSeekBarPreference;
+import com.nusantara.wings.SettingsSnapshot;
+import com.nusantara.wings.SettingsWriter;
 
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
 public class EdgeLight extends SettingsPreferenceFragment
@@ -63,6 +65,9 @@ public class EdgeLight extends SettingsPreferenceFragment
     private SystemSettingSwitchPreference mAmbientPref;
     private SystemSettingListPreference mEdgeLightColorMode;
 
+    private SettingsSnapshot mSettings;
+    private SettingsWriter mWriter;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -70,16 +75,23 @@ public class EdgeLight extends SettingsPreferenceFragment
         final PreferenceScreen prefScreen = getPreferenceScreen();
         final ContentResolver resolver = getActivity().getContentResolver();
 
+        mSettings = SettingsSnapshot.system(getContext(),
+                Settings.System.NOTIFICATION_PULSE_COLOR_MODE,
+                Settings.System.NOTIFICATION_PULSE_COLOR,
+                Settings.System.AMBIENT_LIGHT_BLEND_COLOR,
+                Settings.System.NOTIFICATION_PULSE_REPEATS,
+                Settings.System.NOTIFICATION_PULSE_DURATION);
+        mSettings.startObserving(this, null);
+        mWriter = new SettingsWriter(getContext());
+
         mEdgeLightColorMode = (SystemSettingListPreference) findPreference(NOTIFICATION_PULSE_COLOR_MODE);
-        int edgeLightColorMode = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.NOTIFICATION_PULSE_COLOR_MODE, 0, UserHandle.USER_CURRENT);
+        int edgeLightColorMode = mSettings.getInt(Settings.System.NOTIFICATION_PULSE_COLOR_MODE, 0);
         mEdgeLightColorMode.setValue(String.valueOf(edgeLightColorMode));
         mEdgeLightColorMode.setSummary(mEdgeLightColorMode.getEntry());
         mEdgeLightColorMode.setOnPreferenceChangeListener(this);
 
         mEdgeLightColor = (ColorPickerPreference) findPreference(NOTIFICATION_PULSE_COLOR);
-        int edgeLightColor = Settings.System.getInt(getContentResolver(),
-                Settings.System.NOTIFICATION_PULSE_COLOR, 0xFFFFFFFF);
+        int edgeLightColor = mSettings.getInt(Settings.System.NOTIFICATION_PULSE_COLOR, 0xFFFFFFFF);
         mEdgeLightColor.setNewPreviewColor(edgeLightColor);
         mEdgeLightColor.setAlphaSliderEnabled(false);
         String edgeLightColorHex = String.format("#%08x", (0xFFFFFFFF & edgeLightColor));
@@ -91,8 +103,8 @@ public class EdgeLight extends SettingsPreferenceFragment
         mEdgeLightColor.setOnPreferenceChangeListener(this);
 
         mEdgeLightColorBlend = (ColorPickerPreference) findPreference(NOTIFICATION_PULSE_BLEND_COLOR);
-        int edgeblendColor = Settings.System.getInt(getContentResolver(),
-                Settings.System.AMBIENT_LIGHT_BLEND_COLOR, 0xFF3980FF);
+        int edgeblendColor = mSettings.getInt(Settings.System.AMBIENT_LIGHT_BLEND_COLOR,
+                0xFF3980FF);
         mEdgeLightColorBlend.setNewPreviewColor(edgeblendColor);
         mEdgeLightColorBlend.setAlphaSliderEnabled(false);
         String edgeBlendColorHex = String.format("#%08x", (0xFF3980FF & edgeblendColor));
@@ -104,14 +116,12 @@ public class EdgeLight extends SettingsPreferenceFragment
         mEdgeLightColorBlend.setOnPreferenceChangeListener(this);
 
         mEdgeLightRepeatCount = (CustomSeekBarPreference) findPreference(NOTIFICATION_PULSE_REPEATS);
-        int edgeLightRepeatCount = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.NOTIFICATION_PULSE_REPEATS, 0, UserHandle.USER_CURRENT);
+        int edgeLightRepeatCount = mSettings.getInt(Settings.System.NOTIFICATION_PULSE_REPEATS, 0);
         mEdgeLightRepeatCount.setValue(edgeLightRepeatCount);
         mEdgeLightRepeatCount.setOnPreferenceChangeListener(this);
 
         mEdgeLightDuration = (CustomSeekBarPreference) findPreference(NOTIFICATION_PULSE_DURATION);
-        int lightDuration = Settings.System.getIntForUser(getContentResolver(),
-                Settings.System.NOTIFICATION_PULSE_DURATION, 2, UserHandle.USER_CURRENT);
+        int lightDuration = mSettings.getInt(Settings.System.NOTIFICATION_PULSE_DURATION, 2);
         mEdgeLightDuration.setValue(lightDuration);
         mEdgeLightDuration.setOnPreferenceChangeListener(this);
 
@@ -128,7 +138,6 @@ public class EdgeLight extends SettingsPreferenceFragment
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        final ContentResolver resolver = getActivity().getContentResolver();
         if (preference == mEdgeLightColor) {
             String hex = ColorPickerPreference.convertToARGB(
                     Integer.valueOf(String.valueOf(newValue)));
@@ -138,24 +147,20 @@ public class EdgeLight extends SettingsPreferenceFragment
                 preference.setSummary(hex);
             }
             int intHex = ColorPickerPreference.convertToColorInt(hex);
-            Settings.System.putInt(getContentResolver(),
-                    Settings.System.NOTIFICATION_PULSE_COLOR, intHex);
+            mWriter.putInt(Settings.System.NOTIFICATION_PULSE_COLOR, intHex);
             return true;
         } else if (preference == mEdgeLightRepeatCount) {
             int value = (Integer) newValue;
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.NOTIFICATION_PULSE_REPEATS, value, UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.NOTIFICATION_PULSE_REPEATS, value);
             return true;
         } else if (preference == mEdgeLightDuration) {
             int value = (Integer) newValue;
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.NOTIFICATION_PULSE_DURATION, value, UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.NOTIFICATION_PULSE_DURATION, value);
             return true;
         } else if (preference == mEdgeLightColorMode) {
             int edgeLightColorMode = Integer.valueOf((String) newValue);
             int index = mEdgeLightColorMode.findIndexOfValue((String) newValue);
-            Settings.System.putIntForUser(getContentResolver(),
-                    Settings.System.NOTIFICATION_PULSE_COLOR_MODE, edgeLightColorMode, UserHandle.USER_CURRENT);
+            mSettings.putInt(Settings.System.NOTIFICATION_PULSE_COLOR_MODE, edgeLightColorMode);
             mEdgeLightColorMode.setSummary(mEdgeLightColorMode.getEntries()[index]);
             updateColorPrefs(edgeLightColorMode);
             return true;
@@ -168,8 +173,7 @@ public class EdgeLight extends SettingsPreferenceFragment
                 preference.setSummary(hex);
             }
             int intHex = ColorPickerPreference.convertToColorInt(hex);
-            Settings.System.putInt(getContentResolver(),
-                    Settings.System.AMBIENT_LIGHT_BLEND_COLOR, intHex);
+            mWriter.putInt(Settings.System.AMBIENT_LIGHT_BLEND_COLOR, intHex);
             return true;
         }
         return false;
@@ -193,6 +197,12 @@ public class EdgeLight extends SettingsPreferenceFragment
         super.onResume();
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        mWriter.flush();
+    }
+
     @Override
     public int getMetricsCategory() {
         return MetricsProto.MetricsEvent.NUSANTARA_PRJ;
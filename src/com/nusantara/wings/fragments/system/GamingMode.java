@@ -18,20 +18,9 @@ package com.nusantara.wings.fragments.system;
 
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.content.ContentResolver;
-import android.content.Context;
 import android.content.DialogInterface;
-import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
-import android.content.pm.PackageManager.NameNotFoundException;
-import android.database.ContentObserver;
-import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.UserHandle;
 import android.provider.Settings;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -42,7 +31,6 @@ import android.widget.ListView;
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
-import androidx.preference.PreferenceGroup;
 import androidx.preference.PreferenceScreen;
 import androidx.preference.SwitchPreference;
 
@@ -52,11 +40,9 @@ import com.android.settings.SettingsPreferenceFragment;
 
 import com.nusantara.support.preferences.PackageListAdapter;
 import com.nusantara.support.preferences.PackageListAdapter.PackageItem;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import com.nusantara.wings.DeviceCapabilities;
+import com.nusantara.wings.SettingsObserverHub;
+import com.nusantara.wings.preferences.PackageListPreferenceGroup;
 
 public class GamingMode extends SettingsPreferenceFragment
         implements Preference.OnPreferenceClickListener {
@@ -67,19 +53,9 @@ public class GamingMode extends SettingsPreferenceFragment
     private SwitchPreference mHardwareKeysDisable;
 
     private PackageListAdapter mPackageAdapter;
-    private PackageManager mPackageManager;
-    private PreferenceGroup mGamingPrefList;
+    private PackageListPreferenceGroup mGamingPrefList;
     private Preference mAddGamingPref;
 
-    private String mGamingPackageList;
-    private Map<String, Package> mGamingPackages;
-    private Context mContext;
-
-    private static final int KEY_MASK_HOME = 0x01;
-    private static final int KEY_MASK_BACK = 0x02;
-    private static final int KEY_MASK_MENU = 0x04;
-    private static final int KEY_MASK_APP_SWITCH = 0x10;
-
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -96,22 +72,22 @@ public class GamingMode extends SettingsPreferenceFragment
             prefScreen.removePreference(mHardwareKeysDisable);
         }
 
-        mPackageManager = getPackageManager();
         mPackageAdapter = new PackageListAdapter(getActivity());
 
-        mGamingPrefList = (PreferenceGroup) findPreference("gamingmode_applications");
+        mGamingPrefList = (PackageListPreferenceGroup) findPreference("gamingmode_applications");
         mGamingPrefList.setOrderingAsAdded(false);
-
-        mGamingPackages = new HashMap<String, Package>();
+        mGamingPrefList.setup(Settings.System.GAMING_MODE_VALUES, this);
 
         mAddGamingPref = findPreference("add_gamingmode_packages");
+        // Keep it at the top
+        mAddGamingPref.setOrder(0);
 
         mAddGamingPref.setOnPreferenceClickListener(this);
 
-        mContext = getActivity().getApplicationContext();
-
-        SettingsObserver observer = new SettingsObserver(new Handler(Looper.getMainLooper()));
-        observer.observe();
+        // Pick up list changes made while the screen is open, bound to our lifecycle
+        SettingsObserverHub.getInstance(getContext()).observe(this,
+                Settings.System.getUriFor(Settings.System.GAMING_MODE_VALUES),
+                uri -> refreshCustomApplicationPrefs());
     }
 
     @Override
@@ -154,7 +130,7 @@ public class GamingMode extends SettingsPreferenceFragment
                     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
                         // Add empty application definition, the user will be able to edit it later
                         PackageItem info = (PackageItem) parent.getItemAtPosition(position);
-                        addCustomApplicationPref(info.packageName, mGamingPackages);
+                        mGamingPrefList.addPackage(info.packageName);
                         dialog.cancel();
                     }
                 });
@@ -162,86 +138,8 @@ public class GamingMode extends SettingsPreferenceFragment
         return dialog;
     }
 
-    class SettingsObserver extends ContentObserver {
-        SettingsObserver(Handler handler) {
-            super(handler);
-        }
-
-        void observe() {
-            ContentResolver resolver = mContext.getContentResolver();
-
-            resolver.registerContentObserver(Settings.System.getUriFor(
-                    Settings.System.GAMING_MODE_ACTIVE), false, this,
-                    UserHandle.USER_ALL);
-        }
-
-        @Override
-        public void onChange(boolean selfChange, Uri uri) {
-            if (uri.equals(Settings.System.getUriFor(
-                                   Settings.System.GAMING_MODE_ACTIVE))) {
-                boolean enable = Settings.System.getInt(mContext.getContentResolver(),
-                    Settings.System.GAMING_MODE_ACTIVE, 0) == 1;
-            }
-        }
-    }
-
-    /**
-     * Application class
-     */
-    private static class Package {
-        public String name;
-        /**
-         * Stores all the application values in one call
-         * @param name
-         */
-        public Package(String name) {
-            this.name = name;
-        }
-
-        public String toString() {
-            StringBuilder builder = new StringBuilder();
-            builder.append(name);
-            return builder.toString();
-        }
-
-        public static Package fromString(String value) {
-            if (TextUtils.isEmpty(value)) {
-                return null;
-            }
-
-            try {
-                Package item = new Package(value);
-                return item;
-            } catch (NumberFormatException e) {
-                return null;
-            }
-        }
-
-    };
-
     private void refreshCustomApplicationPrefs() {
-        if (!parsePackageList()) {
-            return;
-        }
-
-        // Add the Application Preferences
-        if (mGamingPrefList != null) {
-            mGamingPrefList.removeAll();
-
-            for (Package pkg : mGamingPackages.values()) {
-                try {
-                    Preference pref = createPreferenceFromInfo(pkg);
-                    mGamingPrefList.addPreference(pref);
-                } catch (PackageManager.NameNotFoundException e) {
-                    // Do nothing
-                }
-            }
-
-            // Keep these at the top
-            mAddGamingPref.setOrder(0);
-            // Add 'add' options
-            mGamingPrefList.addPreference(mAddGamingPref);
-        }
+        mGamingPrefList.refresh();
     }
 
     @Override
@@ -257,7 +155,7 @@ public class GamingMode extends SettingsPreferenceFragment
                         @Override
                         public void onClick(DialogInterface dialog, int which) {
                             if (preference == mGamingPrefList.findPreference(preference.getKey())) {
-                                removeApplicationPref(preference.getKey(), mGamingPackages);
+                                mGamingPrefList.removePackage(preference.getKey());
                             }
                         }
                     })
@@ -268,97 +166,7 @@ public class GamingMode extends SettingsPreferenceFragment
         return true;
     }
 
-    private void addCustomApplicationPref(String packageName, Map<String,Package> map) {
-        Package pkg = map.get(packageName);
-        if (pkg == null) {
-            pkg = new Package(packageName);
-            map.put(packageName, pkg);
-            savePackageList(false, map);
-            refreshCustomApplicationPrefs();
-        }
-    }
-
-    private Preference createPreferenceFromInfo(Package pkg)
-            throws PackageManager.NameNotFoundException {
-        PackageInfo info = mPackageManager.getPackageInfo(pkg.name,
-                PackageManager.GET_META_DATA);
-        Preference pref =
-                new Preference(getActivity());
-
-        pref.setKey(pkg.name);
-        pref.setTitle(info.applicationInfo.loadLabel(mPackageManager));
-        pref.setIcon(info.applicationInfo.loadIcon(mPackageManager));
-        pref.setPersistent(false);
-        pref.setOnPreferenceClickListener(this);
-        return pref;
-    }
-
-    private void removeApplicationPref(String packageName, Map<String,Package> map) {
-        if (map.remove(packageName) != null) {
-            savePackageList(false, map);
-            refreshCustomApplicationPrefs();
-        }
-    }
-
-    private boolean parsePackageList() {
-        boolean parsed = false;
-
-        final String gamingModeString = Settings.System.getString(getContentResolver(),
-                Settings.System.GAMING_MODE_VALUES);
-
-        if (!TextUtils.equals(mGamingPackageList, gamingModeString)) {
-            mGamingPackageList = gamingModeString;
-            mGamingPackages.clear();
-            parseAndAddToMap(gamingModeString, mGamingPackages);
-            parsed = true;
-        }
-
-        return parsed;
-    }
-
-    private void parseAndAddToMap(String baseString, Map<String,Package> map) {
-        if (baseString == null) {
-            return;
-        }
-
-        final String[] array = TextUtils.split(baseString, "\\|");
-        for (String item : array) {
-            if (TextUtils.isEmpty(item)) {
-                continue;
-            }
-            Package pkg = Package.fromString(item);
-            map.put(pkg.name, pkg);
-        }
-    }
-
-
-    private void savePackageList(boolean preferencesUpdated, Map<String,Package> map) {
-        String setting = map == mGamingPackages ? Settings.System.GAMING_MODE_VALUES : Settings.System.GAMING_MODE_DUMMY;
-
-        List<String> settings = new ArrayList<String>();
-        for (Package app : map.values()) {
-            settings.add(app.toString());
-        }
-        final String value = TextUtils.join("|", settings);
-        if (preferencesUpdated) {
-            if (TextUtils.equals(setting, Settings.System.GAMING_MODE_VALUES)) {
-                mGamingPackageList = value;
-            }
-        }
-        Settings.System.putString(getContentResolver(),
-                setting, value);
-    }
-
     private boolean haveHWkeys() {
-        final int deviceKeys = getContext().getResources().getInteger(
-                com.android.internal.R.integer.config_deviceHardwareKeys);
-
-        // read bits for present hardware keys
-        final boolean hasHomeKey = (deviceKeys & KEY_MASK_HOME) != 0;
-        final boolean hasBackKey = (deviceKeys & KEY_MASK_BACK) != 0;
-        final boolean hasMenuKey = (deviceKeys & KEY_MASK_MENU) != 0;
-        final boolean hasAppSwitchKey = (deviceKeys & KEY_MASK_APP_SWITCH) != 0;
-
-        return (hasHomeKey || hasBackKey || hasMenuKey || hasAppSwitchKey);
+        return DeviceCapabilities.get(getContext()).hasHardwareKeys();
     }
 }
@@ -19,17 +19,12 @@ package com.nusantara.wings.fragments.system;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.DialogInterface;
-import android.content.pm.PackageInfo;
-import android.content.pm.PackageManager;
-import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.res.Resources;
 import android.os.Bundle;
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
-import androidx.preference.PreferenceGroup;
 import androidx.preference.PreferenceScreen;
 import androidx.preference.PreferenceViewHolder;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup; 
@@ -42,13 +37,9 @@ import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.nusantara.support.preferences.PackageListAdapter;
 import com.nusantara.support.preferences.PackageListAdapter.PackageItem;
+import com.nusantara.wings.preferences.PackageListPreferenceGroup;
 import android.provider.Settings;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 public class HeadsUpOptions extends SettingsPreferenceFragment
         implements Preference.OnPreferenceClickListener, Preference.OnPreferenceChangeListener {
 
@@ -58,39 +49,35 @@ public class HeadsUpOptions extends SettingsPreferenceFragment
     private static final String PREF_HEADS_UP_SNOOZE_TIME = "heads_up_snooze_time";
 
     private PackageListAdapter mPackageAdapter;
-    private PackageManager mPackageManager;
-    private PreferenceGroup mStoplistPrefList;
-    private PreferenceGroup mBlacklistPrefList;
+    private PackageListPreferenceGroup mStoplistPrefList;
+    private PackageListPreferenceGroup mBlacklistPrefList;
     private Preference mAddStoplistPref;
     private Preference mAddBlacklistPref;
     private ListPreference mHeadsUpTimeOut;
     private ListPreference mHeadsUpSnoozeTime;
 
-    private String mStoplistPackageList;
-    private String mBlacklistPackageList;
-    private Map<String, Package> mStoplistPackages;
-    private Map<String, Package> mBlacklistPackages;
-
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         // Get launch-able applications
         addPreferencesFromResource(R.xml.heads_up_options);
-        mPackageManager = getPackageManager();
         mPackageAdapter = new PackageListAdapter(getActivity());
 
-        mStoplistPrefList = (PreferenceGroup) findPreference("stoplist_applications");
+        mStoplistPrefList = (PackageListPreferenceGroup) findPreference("stoplist_applications");
         mStoplistPrefList.setOrderingAsAdded(false);
+        mStoplistPrefList.setup(Settings.System.HEADS_UP_STOPLIST_VALUES, this);
 
-        mBlacklistPrefList = (PreferenceGroup) findPreference("blacklist_applications");
+        mBlacklistPrefList = (PackageListPreferenceGroup) findPreference("blacklist_applications");
         mBlacklistPrefList.setOrderingAsAdded(false);
-
-        mStoplistPackages = new HashMap<String, Package>();
-        mBlacklistPackages = new HashMap<String, Package>();
+        mBlacklistPrefList.setup(Settings.System.HEADS_UP_BLACKLIST_VALUES, this);
 
         mAddStoplistPref = findPreference("add_stoplist_packages");
         mAddBlacklistPref = findPreference("add_blacklist_packages");
 
+        // Keep these at the top
+        mAddStoplistPref.setOrder(0);
+        mAddBlacklistPref.setOrder(0);
+
         mAddStoplistPref.setOnPreferenceClickListener(this);
         mAddBlacklistPref.setOnPreferenceClickListener(this);
 
@@ -197,7 +184,7 @@ public class HeadsUpOptions extends SettingsPreferenceFragment
                     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
                         // Add empty application definition, the user will be able to edit it later
                         PackageItem info = (PackageItem) parent.getItemAtPosition(position);
-                        addCustomApplicationPref(info.packageName, mStoplistPackages);
+                        mStoplistPrefList.addPackage(info.packageName);
                         dialog.cancel();
                     }
                 });
@@ -208,7 +195,7 @@ public class HeadsUpOptions extends SettingsPreferenceFragment
                     public void onItemClick(AdapterView<?> parent,
                             View view, int position, long id) {
                         PackageItem info = (PackageItem) parent.getItemAtPosition(position);
-                        addCustomApplicationPref(info.packageName, mBlacklistPackages);
+                        mBlacklistPrefList.addPackage(info.packageName);
                         dialog.cancel();
                     }
                 });
@@ -216,75 +203,9 @@ public class HeadsUpOptions extends SettingsPreferenceFragment
         return dialog;
     }
 
-    /**
-     * Application class
-     */
-    private static class Package {
-        public String name;
-        /**
-         * Stores all the application values in one call
-         * @param name
-         */
-        public Package(String name) {
-            this.name = name;
-        }
-
-        public String toString() {
-            StringBuilder builder = new StringBuilder();
-            builder.append(name);
-            return builder.toString();
-        }
-
-        public static Package fromString(String value) {
-            if (TextUtils.isEmpty(value)) {
-                return null;
-            }
-
-            try {
-                Package item = new Package(value);
-                return item;
-            } catch (NumberFormatException e) {
-                return null;
-            }
-        }
-
-    };
-
     private void refreshCustomApplicationPrefs() {
-        if (!parsePackageList()) {
-            return;
-        }
-
-        // Add the Application Preferences
-        if (mStoplistPrefList != null && mBlacklistPrefList != null) {
-            mStoplistPrefList.removeAll();
-            mBlacklistPrefList.removeAll();
-
-            for (Package pkg : mStoplistPackages.values()) {
-                try {
-                    Preference pref = createPreferenceFromInfo(pkg);
-                    mStoplistPrefList.addPreference(pref);
-                } catch (PackageManager.NameNotFoundException e) {
-                    // Do nothing
-                }
-            }
-
-            for (Package pkg : mBlacklistPackages.values()) {
-                try {
-                    Preference pref = createPreferenceFromInfo(pkg);
-                    mBlacklistPrefList.addPreference(pref);
-                } catch (PackageManager.NameNotFoundException e) {
-                    // Do nothing
-                }
-            }
-        }
-
-        // Keep these at the top
-        mAddStoplistPref.setOrder(0);
-        mAddBlacklistPref.setOrder(0);
-        // Add 'add' options
-        mStoplistPrefList.addPreference(mAddStoplistPref);
-        mBlacklistPrefList.addPreference(mAddBlacklistPref);
+        mStoplistPrefList.refresh();
+        mBlacklistPrefList.refresh();
     }
 
     @Override
@@ -302,9 +223,9 @@ public class HeadsUpOptions extends SettingsPreferenceFragment
                         @Override
                         public void onClick(DialogInterface dialog, int which) {
                             if (preference == mBlacklistPrefList.findPreference(preference.getKey())) {
-                                 removeApplicationPref(preference.getKey(), mBlacklistPackages);
+                                mBlacklistPrefList.removePackage(preference.getKey());
                             } else if (preference == mStoplistPrefList.findPreference(preference.getKey())) {
-                                removeApplicationPref(preference.getKey(), mStoplistPackages);
+                                mStoplistPrefList.removePackage(preference.getKey());
                             }
                         }
                     })
@@ -314,98 +235,4 @@ public class HeadsUpOptions extends SettingsPreferenceFragment
         }
         return true;
     }
-
-     private void addCustomApplicationPref(String packageName, Map<String,Package> map) {
-        Package pkg = map.get(packageName);
-        if (pkg == null) {
-            pkg = new Package(packageName);
-            map.put(packageName, pkg);
-            savePackageList(false, map);
-            refreshCustomApplicationPrefs();
-        }
-    }
-
-    private Preference createPreferenceFromInfo(Package pkg)
-            throws PackageManager.NameNotFoundException {
-        PackageInfo info = mPackageManager.getPackageInfo(pkg.name,
-                PackageManager.GET_META_DATA);
-        Preference pref =
-                new Preference(getActivity());
-
-        pref.setKey(pkg.name);
-        pref.setTitle(info.applicationInfo.loadLabel(mPackageManager));
-        pref.setIcon(info.applicationInfo.loadIcon(mPackageManager));
-        pref.setPersistent(false);
-        pref.setOnPreferenceClickListener(this);
-        return pref;
-    }
-
-    private void removeApplicationPref(String packageName, Map<String,Package> map) {
-        if (map.remove(packageName) != null) {
-            savePackageList(false, map);
-            refreshCustomApplicationPrefs();
-        }
-    }
-
-    private boolean parsePackageList() {
-        boolean parsed = false;
-
-        final String stoplistString = Settings.System.getString(getContentResolver(),
-                Settings.System.HEADS_UP_STOPLIST_VALUES);
-        final String blacklistString = Settings.System.getString(getContentResolver(),
-                Settings.System.HEADS_UP_BLACKLIST_VALUES);
-
-        if (!TextUtils.equals(mStoplistPackageList, stoplistString)) {
-            mStoplistPackageList = stoplistString;
-            mStoplistPackages.clear();
-            parseAndAddToMap(stoplistString, mStoplistPackages);
-            parsed = true;
-        }
-
-        if (!TextUtils.equals(mBlacklistPackageList, blacklistString)) {
-            mBlacklistPackageList = blacklistString;
-            mBlacklistPackages.clear();
-            parseAndAddToMap(blacklistString, mBlacklistPackages);
-            parsed = true;
-        }
-
-        return parsed;
-    }
-
-    private void parseAndAddToMap(String baseString, Map<String,Package> map) {
-        if (baseString == null) {
-            return;
-        }
-
-        final String[] array = TextUtils.split(baseString, "\\|");
-        for (String item : array) {
-            if (TextUtils.isEmpty(item)) {
-                continue;
-            }
-            Package pkg = Package.fromString(item);
-            map.put(pkg.name, pkg);
-        }
-    }
-
-
-    private void savePackageList(boolean preferencesUpdated, Map<String,Package> map) {
-        String setting = map == mStoplistPackages
-                ? Settings.System.HEADS_UP_STOPLIST_VALUES
-                : Settings.System.HEADS_UP_BLACKLIST_VALUES;
-
-        List<String> settings = new ArrayList<String>();
-        for (Package app : map.values()) {
-            settings.add(app.toString());
-        }
-        final String value = TextUtils.join("|", settings);
-        if (preferencesUpdated) {
-            if (TextUtils.equals(setting, Settings.System.HEADS_UP_STOPLIST_VALUES)) {
-                mStoplistPackageList = value;
-            } else {
-                mBlacklistPackageList = value;
-            }
-        }
-        Settings.System.putString(getContentResolver(),
-                setting, value);
-    }
 }
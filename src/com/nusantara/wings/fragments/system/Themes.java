@@ -16,40 +16,59 @@
 
 package com.nusantara.wings.fragments.system;
 
+import android.app.AlertDialog;
 import android.app.Dialog;
 import android.app.UiModeManager;
 import android.content.Context;
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.om.IOverlayManager;
 import android.graphics.Color;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.RemoteException;
 import android.os.ServiceManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
 import android.provider.Settings;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.RadioButton;
+import android.widget.Toast;
 
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
-import androidx.preference.PreferenceScreen;
 
 import com.android.internal.logging.nano.MetricsProto;
-import com.android.internal.util.nad.NadUtils;
-import com.android.internal.util.nad.ThemesUtils;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.search.SearchIndexable;
+import com.android.settingslib.utils.ThreadUtils;
 import com.nusantara.support.colorpicker.ColorPickerPreference;
 import com.nusantara.wings.UtilsNad;
+import com.nusantara.wings.preferences.OverlayListPreference;
+import com.nusantara.wings.themes.OverlayCategories;
+import com.nusantara.wings.themes.OverlayCategory;
+import com.nusantara.wings.themes.OverlayPlan;
+import com.nusantara.wings.themes.OverlayStateIndex;
+import com.nusantara.wings.themes.OverlayTransaction;
+import com.nusantara.wings.themes.ThemePreset;
+import com.nusantara.wings.themes.ThemePresetStore;
+
+import org.json.JSONException;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import static com.nusantara.wings.UtilsThemes.handleBackgrounds;
 import static com.nusantara.wings.UtilsThemes.handleOverlays;
 import static com.nusantara.wings.UtilsThemes.threeButtonNavbarEnabled;
 
@@ -57,201 +76,84 @@ import static com.nusantara.wings.UtilsThemes.threeButtonNavbarEnabled;
 public class Themes extends SettingsPreferenceFragment
         implements Preference.OnPreferenceChangeListener {
 
+    private static final String TAG = "Themes";
+
     private static final String PREF_THEME_SWITCH = "theme_switch";
-    private static final String PREF_ADAPTIVE_ICON_SHAPE = "adapative_icon_shape";
-    private static final String PREF_STATUSBAR_ICONS = "statusbar_icons";
-    private static final String PREF_FONT_PICKER = "font_picker";
-    private static final String PREF_NAVBAR_STYLE = "theme_navbar_style";
-    private static final String PREF_QS_HEADER_STYLE = "qs_header_style";
-    private static final String PREF_ROUNDED_CORNER = "rounded_ui";
-    private static final String PREF_SB_HEIGHT = "statusbar_height";
-    private static final String BRIGHTNESS_SLIDER_STYLE = "brightness_slider_style";
-    private static final String PREF_PANEL_BG = "panel_bg";
-    private static final String PREF_QS_SHAPE = "qs_shape";
-    private static final String PREF_SWITCH_STYLE = "switch_style";
     private static final String PREF_SETTINGS_THEMES = "themes_settings";
     private static final String PREF_RGB_ACCENT_PICKER = "rgb_accent_picker";
+    private static final String PREF_THEME_PRESETS = "theme_presets";
+
+    private static final long ACCENT_COMMIT_DELAY_MS = 500;
 
     private Context mContext;
     private IOverlayManager mOverlayManager;
+    private OverlayStateIndex mOverlayState;
     private UiModeManager mUiModeManager;
 
     private ColorPickerPreference rgbAccentPicker;
     private ListPreference mThemeSwitch;
-    private ListPreference mAccentPicker;
-    private ListPreference mAdaptiveIconShape;
-    private ListPreference mStatusbarIcons;
-    private ListPreference mFontPicker;
-    private ListPreference mNavbarPicker;
-    private ListPreference mQsHeaderStyle;
-    private ListPreference mRoundedUi;
-    private ListPreference mSbHeight;
-    private ListPreference mBrightnessSliderStyle;
-    private ListPreference mPanelBg;
-    private ListPreference mQsShape;
-    private ListPreference mSwitchStyle;
     private Preference mThemesSettings;
+    private Preference mThemePresets;
+    private ThemePresetStore mPresetStore;
+
+    private final Map<OverlayListPreference, OverlayCategory> mOverlayPickers =
+            new LinkedHashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mCommitAccentColor = this::commitAccentColor;
+    private String mPendingAccentColor;
+    private int mAccentChanges;
+    private int mAccentCommits;
+    private long mCreateTime;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mCreateTime = SystemClock.elapsedRealtime();
         addPreferencesFromResource(R.xml.nad_themes);
-        final PreferenceScreen prefScreen = getPreferenceScreen();
         mContext = getActivity();
 
         // Theme services
         mUiModeManager = getContext().getSystemService(UiModeManager.class);
         mOverlayManager = IOverlayManager.Stub.asInterface(
                 ServiceManager.getService(Context.OVERLAY_SERVICE));
+        mOverlayState = OverlayStateIndex.getInstance(mContext);
 
-        // Themes
+        // Everything below only looks up preferences, the theme switch and the
+        // accent are resolved off the main thread and bound in bindThemeState(),
+        // each overlay category once its row is bound for the first time
         mThemeSwitch = (ListPreference) findPreference(PREF_THEME_SWITCH);
-        // First of all we have to evaluate whether the light or dark mode is active
-        if (mUiModeManager.getNightMode() == UiModeManager.MODE_NIGHT_NO) {
-            mThemeSwitch.setValue("1");
-        } else if (NadUtils.isThemeEnabled("com.android.theme.color.ocean.system")) {
-            mThemeSwitch.setValue("6");
-        } else if (NadUtils.isThemeEnabled("com.android.theme.color.nadclear.system")) {
-            mThemeSwitch.setValue("5");
-        } else if (NadUtils.isThemeEnabled("com.android.theme.color.solarized.system")) {
-            mThemeSwitch.setValue("4");
-        } else if (NadUtils.isThemeEnabled("com.android.theme.color.pitchblack.system")) {
-            mThemeSwitch.setValue("3");
-        } else { // Google dark theme
-            mThemeSwitch.setValue("2");
-        }
-
-        mThemeSwitch.setSummary(mThemeSwitch.getEntry());
-        mThemeSwitch.setOnPreferenceChangeListener(this);
-
-        // Statusbar icons
-        mStatusbarIcons = (ListPreference) findPreference(PREF_STATUSBAR_ICONS);
-        int sbIconsValue = getOverlayPosition(ThemesUtils.STATUSBAR_ICONS);
+        rgbAccentPicker = (ColorPickerPreference) findPreference(PREF_RGB_ACCENT_PICKER);
 
-        if (sbIconsValue != -1) {
-            mStatusbarIcons.setValue(String.valueOf(sbIconsValue + 2));
-        } else {
-            mStatusbarIcons.setValue("1");
-        }
-        mStatusbarIcons.setSummary(mStatusbarIcons.getEntry());
-        mStatusbarIcons.setOnPreferenceChangeListener(this);
-
-        mAdaptiveIconShape = (ListPreference) findPreference(PREF_ADAPTIVE_ICON_SHAPE);
-        int iconShapeValue = getOverlayPosition(ThemesUtils.ADAPTIVE_ICON_SHAPE);
-        if (iconShapeValue != -1) {
-            mAdaptiveIconShape.setValue(String.valueOf(iconShapeValue + 2));
-        } else {
-            mAdaptiveIconShape.setValue("1");
-        }
-        mAdaptiveIconShape.setSummary(mAdaptiveIconShape.getEntry());
-        mAdaptiveIconShape.setOnPreferenceChangeListener(this);
-
-        // Font picker
-        mFontPicker = (ListPreference) findPreference(PREF_FONT_PICKER);
-        int fontPickerValue = getOverlayPosition(ThemesUtils.FONTS);
-        if (fontPickerValue != -1) {
-            mFontPicker.setValue(String.valueOf(fontPickerValue + 2));
-        } else {
-            mFontPicker.setValue("1");
-        }
-        mFontPicker.setSummary(mFontPicker.getEntry());
-        mFontPicker.setOnPreferenceChangeListener(this);
-
-        mNavbarPicker = (ListPreference) findPreference(PREF_NAVBAR_STYLE);
-        if (threeButtonNavbarEnabled(mContext)) {
-            int navbarStyleValues = getOverlayPosition(ThemesUtils.NAVBAR_STYLES);
-            if (navbarStyleValues != -1) {
-                mNavbarPicker.setValue(String.valueOf(navbarStyleValues + 2));
+        for (OverlayCategory category : OverlayCategories.getAll()) {
+            OverlayListPreference picker = (OverlayListPreference) findPreference(category.getKey());
+            if (picker == null) {
+                continue;
+            }
+            picker.setSummary(R.string.themes_loading_summary);
+            picker.setEnabled(false);
+            mOverlayPickers.put(picker, category);
+            if (category.isThreeButtonNavbarOnly()) {
+                // Hidden rows never bind, shown once the navbar mode is known
+                picker.setVisible(false);
+                loadCategoryState(picker);
             } else {
-                mNavbarPicker.setValue("1");
+                picker.setOnFirstBindListener(this::loadCategoryState);
             }
-            mNavbarPicker.setSummary(mNavbarPicker.getEntry());
-            mNavbarPicker.setOnPreferenceChangeListener(this);
-        } else {
-            prefScreen.removePreference(mNavbarPicker);
-        }
-
-        mQsHeaderStyle = (ListPreference) findPreference(PREF_QS_HEADER_STYLE);
-        int qsStyleValue = getOverlayPosition(ThemesUtils.QS_HEADER_THEMES);
-        if (qsStyleValue != -1) {
-            mQsHeaderStyle.setValue(String.valueOf(qsStyleValue + 2));
-        } else {
-            mQsHeaderStyle.setValue("1");
-        }
-        mQsHeaderStyle.setSummary(mQsHeaderStyle.getEntry());
-        mQsHeaderStyle.setOnPreferenceChangeListener(this);
-
-        mRoundedUi = (ListPreference) findPreference(PREF_ROUNDED_CORNER);
-        int roundedValue = getOverlayPosition(ThemesUtils.UI_RADIUS);
-        if (roundedValue != -1) {
-            mRoundedUi.setValue(String.valueOf(roundedValue + 2));
-        } else {
-            mRoundedUi.setValue("1");
-        }
-        mRoundedUi.setSummary(mRoundedUi.getEntry());
-        mRoundedUi.setOnPreferenceChangeListener(this);
-
-        mSbHeight = (ListPreference) findPreference(PREF_SB_HEIGHT);
-        int sbHeightValue = getOverlayPosition(ThemesUtils.STATUSBAR_HEIGHT);
-        if (sbHeightValue != -1) {
-            mSbHeight.setValue(String.valueOf(sbHeightValue + 2));
-        } else {
-            mSbHeight.setValue("1");
         }
-        mSbHeight.setSummary(mSbHeight.getEntry());
-        mSbHeight.setOnPreferenceChangeListener(this);
-
-        mBrightnessSliderStyle = (ListPreference) findPreference(BRIGHTNESS_SLIDER_STYLE);
-        int brightnessSliderValue = getOverlayPosition(ThemesUtils.BRIGHTNESS_SLIDER_THEMES);
-        if (brightnessSliderValue != -1) {
-            mBrightnessSliderStyle.setValue(String.valueOf(brightnessSliderValue + 2));
-        } else {
-            mBrightnessSliderStyle.setValue("1");
-        }
-        mBrightnessSliderStyle.setSummary(mBrightnessSliderStyle.getEntry());
-        mBrightnessSliderStyle.setOnPreferenceChangeListener(this);
-
 
-        mPanelBg = (ListPreference) findPreference(PREF_PANEL_BG);
-        int mPanelValue = getOverlayPosition(ThemesUtils.PANEL_BG_STYLE);
-        if (mPanelValue != -1) {
-            mPanelBg.setValue(String.valueOf(mPanelValue + 2));
-        } else {
-            mPanelBg.setValue("1");
-        }
-        mPanelBg.setSummary(mPanelBg.getEntry());
-        mPanelBg.setOnPreferenceChangeListener(this);
-
-        // Qs shape
-        mQsShape = (ListPreference) findPreference(PREF_QS_SHAPE);
-        int qsShapeValue = getOverlayPosition(ThemesUtils.QS_SHAPE);
-        if (qsShapeValue != -1) {
-            mQsShape.setValue(String.valueOf(qsShapeValue + 2));
-        } else {
-            mQsShape.setValue("1");
-        }
-        mQsShape.setSummary(mQsShape.getEntry());
-        mQsShape.setOnPreferenceChangeListener(this);
-
-        // Switch style
-        mSwitchStyle = (ListPreference) findPreference(PREF_SWITCH_STYLE);
-        int switchStyleValue = getOverlayPosition(ThemesUtils.SWITCH_STYLE);
-        if (switchStyleValue != -1) {
-            mSwitchStyle.setValue(String.valueOf(switchStyleValue + 2));
-        } else {
-            mSwitchStyle.setValue("1");
-        }
-        mSwitchStyle.setSummary(mSwitchStyle.getEntry());
-        mSwitchStyle.setOnPreferenceChangeListener(this);
-
-        rgbAccentPicker = (ColorPickerPreference) findPreference(PREF_RGB_ACCENT_PICKER);
-        String colorVal = Settings.Secure.getStringForUser(mContext.getContentResolver(),
-                Settings.Secure.ACCENT_COLOR, UserHandle.USER_CURRENT);
-        int color = (colorVal == null)
-                ? Color.WHITE
-                : Color.parseColor("#" + colorVal);
-        rgbAccentPicker.setNewPreviewColor(color);
-        rgbAccentPicker.setOnPreferenceChangeListener(this);
+        mThemeSwitch.setSummary(R.string.themes_loading_summary);
+        mThemeSwitch.setEnabled(false);
+        rgbAccentPicker.setEnabled(false);
+        loadThemeState();
+
+        // Theme presets, usable once the current state is bound
+        mPresetStore = new ThemePresetStore(mContext);
+        mThemePresets = findPreference(PREF_THEME_PRESETS);
+        mThemePresets.setEnabled(false);
+        mThemePresets.setOnPreferenceClickListener(pref -> {
+            showPresetsDialog();
+            return true;
+        });
 
         // Settings themes
         mThemesSettings = (Preference) findPreference(PREF_SETTINGS_THEMES);
@@ -330,267 +232,366 @@ public class Themes extends SettingsPreferenceFragment
         });
     }
 
-    @Override
-    public boolean onPreferenceChange(Preference preference, Object newValue) {
-        if (preference == mThemeSwitch) {
-            String themeSwitch = (String) newValue;
-            switch (themeSwitch) {
-                case "1":
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_NO,
-                            ThemesUtils.PITCH_BLACK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_NO,
-                            ThemesUtils.SOLARIZED_DARK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_NO,
-                            ThemesUtils.NAD_CLEAR, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_NO,
-                            ThemesUtils.MATERIAL_OCEAN, mOverlayManager);
-                    break;
-                case "2":
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.PITCH_BLACK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.SOLARIZED_DARK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.NAD_CLEAR, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.MATERIAL_OCEAN, mOverlayManager);
-                    break;
-                case "3":
-                    handleBackgrounds(true, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.PITCH_BLACK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.SOLARIZED_DARK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.NAD_CLEAR, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.MATERIAL_OCEAN, mOverlayManager);
-                    break;
-                case "4":
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.PITCH_BLACK, mOverlayManager);
-                    handleBackgrounds(true, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.SOLARIZED_DARK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.NAD_CLEAR, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.MATERIAL_OCEAN, mOverlayManager);
-                    break;
-                case "5":
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.PITCH_BLACK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.SOLARIZED_DARK, mOverlayManager);
-                    handleBackgrounds(true, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.NAD_CLEAR, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.MATERIAL_OCEAN, mOverlayManager);
-                    break;
-                case "6":
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.PITCH_BLACK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.SOLARIZED_DARK, mOverlayManager);
-                    handleBackgrounds(false, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.NAD_CLEAR, mOverlayManager);
-                    handleBackgrounds(true, mContext, UiModeManager.MODE_NIGHT_YES,
-                            ThemesUtils.MATERIAL_OCEAN, mOverlayManager);
-                    break;
-            }
-            mThemeSwitch.setSummary(mThemeSwitch.getEntry());
-            return true;
-        } else if (preference == mStatusbarIcons) {
-            String statusbarIcons = (String) newValue;
-            String overlayName = getOverlayName(ThemesUtils.STATUSBAR_ICONS);
-            int statusbarIconsValue = Integer.parseInt(statusbarIcons);
-            mStatusbarIcons.setValue(String.valueOf(statusbarIconsValue));
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (statusbarIconsValue > 1) {
-                handleOverlays(ThemesUtils.STATUSBAR_ICONS[statusbarIconsValue - 2],
-                        true, mOverlayManager);
-            }
-            mStatusbarIcons.setSummary(mStatusbarIcons.getEntry());
-            return true;
-        } else if (preference == mAdaptiveIconShape) {
-            String adapativeIconShape = (String) newValue;
-            String overlayName = getOverlayName(ThemesUtils.ADAPTIVE_ICON_SHAPE);
-            int adapativeIconShapeValue = Integer.parseInt(adapativeIconShape);
-            mAdaptiveIconShape.setValue(String.valueOf(adapativeIconShapeValue));
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (adapativeIconShapeValue > 1) {
-                handleOverlays(ThemesUtils.ADAPTIVE_ICON_SHAPE[adapativeIconShapeValue - 2],
-                        true, mOverlayManager);
-            }
-            mAdaptiveIconShape.setSummary(mAdaptiveIconShape.getEntry());
-            return true;
-        } else if (preference == mFontPicker) {
-            String font = (String) newValue;
-            int fontTypeValue = Integer.parseInt(font);
-            mFontPicker.setValue(String.valueOf(fontTypeValue));
-            String overlayName = getOverlayName(ThemesUtils.FONTS);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (fontTypeValue > 1) {
-                handleOverlays(ThemesUtils.FONTS[fontTypeValue - 2],
-                        true, mOverlayManager);
-            }
-            mFontPicker.setSummary(mFontPicker.getEntry());
-            return true;
-        } else if (preference == mNavbarPicker) {
-            String navbarStyle = (String) newValue;
-            int navbarStyleValue = Integer.parseInt(navbarStyle);
-            mNavbarPicker.setValue(String.valueOf(navbarStyleValue));
-            String overlayName = getOverlayName(ThemesUtils.NAVBAR_STYLES);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (navbarStyleValue > 1) {
-                handleOverlays(ThemesUtils.NAVBAR_STYLES[navbarStyleValue - 2],
-                        true, mOverlayManager);
-            }
-            mNavbarPicker.setSummary(mNavbarPicker.getEntry());
-            return true;
-        } else if (preference == mQsHeaderStyle) {
-            String qsHeaderStyle = (String) newValue;
-            int qsHeaderStyleValue = Integer.parseInt(qsHeaderStyle);
-            mQsHeaderStyle.setValue(String.valueOf(qsHeaderStyleValue));
-            String overlayName = getOverlayName(ThemesUtils.QS_HEADER_THEMES);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (qsHeaderStyleValue > 1) {
-                handleOverlays(ThemesUtils.QS_HEADER_THEMES[qsHeaderStyleValue - 2],
-                        true, mOverlayManager);
-            }
-            mQsHeaderStyle.setSummary(mQsHeaderStyle.getEntry());
-            return true;
-        } else if (preference == mRoundedUi) {
-            String rounded = (String) newValue;
-            int roundedValue = Integer.parseInt(rounded);
-            mRoundedUi.setValue(String.valueOf(roundedValue));
-            String overlayName = getOverlayName(ThemesUtils.UI_RADIUS);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (roundedValue > 1) {
-                handleOverlays(ThemesUtils.UI_RADIUS[roundedValue - 2],
-                        true, mOverlayManager);
-            }
-            mRoundedUi.setSummary(mRoundedUi.getEntry());
-            return true;
-        } else if (preference == mSbHeight) {
-            String sbheight = (String) newValue;
-            int sbheightValue = Integer.parseInt(sbheight);
-            mSbHeight.setValue(String.valueOf(sbheightValue));
-            String overlayName = getOverlayName(ThemesUtils.STATUSBAR_HEIGHT);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
-            }
-            if (sbheightValue > 1) {
-                handleOverlays(ThemesUtils.STATUSBAR_HEIGHT[sbheightValue - 2],
-                        true, mOverlayManager);
-            }
-            mSbHeight.setSummary(mSbHeight.getEntry());
-            return true;
-        } else if (preference == mBrightnessSliderStyle) {
-            String sliderStyle = (String) newValue;
-            int sliderValue = Integer.parseInt(sliderStyle);
-            mBrightnessSliderStyle.setValue(String.valueOf(sliderValue));
-            String overlayName = getOverlayName(ThemesUtils.BRIGHTNESS_SLIDER_THEMES);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
+    private void loadThemeState() {
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final int themeSwitchValue = resolveThemeSwitch();
+            final int accentColor = resolveAccentColor();
+            ThreadUtils.postOnMainThread(() -> {
+                if (!isAdded()) {
+                    return;
+                }
+                bindThemeState(themeSwitchValue, accentColor);
+            });
+        });
+    }
+
+    private void loadCategoryState(OverlayListPreference picker) {
+        final OverlayCategory category = mOverlayPickers.get(picker);
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final boolean visible = !category.isThreeButtonNavbarOnly()
+                    || threeButtonNavbarEnabled(mContext);
+            final int position = mOverlayState.getPosition(category.getOverlays());
+            ThreadUtils.postOnMainThread(() -> {
+                if (!isAdded()) {
+                    return;
+                }
+                if (!visible) {
+                    mOverlayPickers.remove(picker);
+                    picker.getParent().removePreference(picker);
+                    return;
+                }
+                picker.setVisible(true);
+                picker.setValue(String.valueOf(category.toValue(position)));
+                picker.setSummary(picker.getEntry());
+                picker.setOnPreferenceChangeListener(this);
+                picker.setEnabled(true);
+            });
+        });
+    }
+
+    private int resolveThemeSwitch() {
+        // First of all we have to evaluate whether the light or dark mode is active
+        if (mUiModeManager.getNightMode() == UiModeManager.MODE_NIGHT_NO) {
+            return 1;
+        }
+        // Dark backgrounds are values 3..6, the later ones win like they used to
+        for (int i = OverlayCategories.DARK_BACKGROUND_MARKERS.length - 1; i >= 0; i--) {
+            if (mOverlayState.isEnabled(OverlayCategories.DARK_BACKGROUND_MARKERS[i])) {
+                return i + 3;
             }
-            if (sliderValue > 1) {
-                handleOverlays(ThemesUtils.BRIGHTNESS_SLIDER_THEMES[sliderValue - 2],
-                        true, mOverlayManager);
+        }
+        // Google dark theme
+        return 2;
+    }
+
+    private int resolveAccentColor() {
+        String colorVal = Settings.Secure.getStringForUser(mContext.getContentResolver(),
+                Settings.Secure.ACCENT_COLOR, UserHandle.USER_CURRENT);
+        return (colorVal == null)
+                ? Color.WHITE
+                : Color.parseColor("#" + colorVal);
+    }
+
+    private void bindThemeState(int themeSwitchValue, int accentColor) {
+        mThemeSwitch.setValue(String.valueOf(themeSwitchValue));
+        mThemeSwitch.setSummary(mThemeSwitch.getEntry());
+        mThemeSwitch.setOnPreferenceChangeListener(this);
+        mThemeSwitch.setEnabled(true);
+
+        rgbAccentPicker.setNewPreviewColor(accentColor);
+        rgbAccentPicker.setOnPreferenceChangeListener(this);
+        rgbAccentPicker.setEnabled(true);
+        mThemePresets.setEnabled(true);
+
+        if (Build.IS_DEBUGGABLE) {
+            long timeToInteractive = SystemClock.elapsedRealtime() - mCreateTime;
+            Log.d(TAG, "Time to interactive: " + timeToInteractive + "ms (" + Build.DISPLAY + ")");
+        }
+    }
+
+    private ThemePreset captureCurrentPreset(String name) {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        // Rows that were never bound have no value yet, the snapshot always does
+        for (OverlayCategory category : mOverlayPickers.values()) {
+            values.put(category.getKey(),
+                    category.toValue(mOverlayState.getPosition(category.getOverlays())));
+        }
+        String accentColor = mPendingAccentColor != null ? mPendingAccentColor
+                : Settings.Secure.getStringForUser(mContext.getContentResolver(),
+                        Settings.Secure.ACCENT_COLOR, UserHandle.USER_CURRENT);
+        return new ThemePreset(name, Integer.parseInt(mThemeSwitch.getValue()),
+                accentColor, values);
+    }
+
+    private void showPresetsDialog() {
+        final List<ThemePreset> presets = mPresetStore.getAll();
+        final List<CharSequence> items = new ArrayList<>();
+        for (ThemePreset preset : presets) {
+            items.add(preset.getName());
+        }
+        items.add(getString(R.string.theme_presets_save));
+        items.add(getString(R.string.theme_presets_import));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(mContext)
+                .setTitle(R.string.theme_presets_title)
+                .setItems(items.toArray(new CharSequence[0]), (dialog, which) -> {
+                    if (which < presets.size()) {
+                        showPresetActionsDialog(presets.get(which));
+                    } else if (which == presets.size()) {
+                        showSavePresetDialog();
+                    } else {
+                        showImportPresetsDialog();
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null);
+        if (!presets.isEmpty()) {
+            builder.setNeutralButton(R.string.theme_presets_export_all,
+                    (dialog, which) -> exportPresets(presets));
+        }
+        builder.show();
+    }
+
+    private void showPresetActionsDialog(ThemePreset preset) {
+        CharSequence[] actions = {
+                getString(R.string.theme_presets_apply),
+                getString(R.string.theme_presets_export),
+                getString(R.string.theme_presets_delete),
+        };
+        new AlertDialog.Builder(mContext)
+                .setTitle(preset.getName())
+                .setItems(actions, (dialog, which) -> {
+                    if (which == 0) {
+                        applyPreset(preset);
+                    } else if (which == 1) {
+                        exportPresets(Collections.singletonList(preset));
+                    } else {
+                        mPresetStore.delete(preset.getName());
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private void showSavePresetDialog() {
+        final EditText input = new EditText(mContext);
+        input.setHint(R.string.theme_presets_name_hint);
+        new AlertDialog.Builder(mContext)
+                .setTitle(R.string.theme_presets_save)
+                .setView(input)
+                .setPositiveButton(R.string.menu_save, (dialog, which) -> {
+                    String name = input.getText().toString().trim();
+                    if (name.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        mPresetStore.save(captureCurrentPreset(name));
+                    } catch (JSONException e) {
+                        Log.e(TAG, "Failed to save preset " + name, e);
+                    }
+                })
+                .setNegativeButton(R.string.menu_cancel, null)
+                .show();
+    }
+
+    private void showImportPresetsDialog() {
+        final EditText input = new EditText(mContext);
+        input.setHint(R.string.theme_presets_import_hint);
+        new AlertDialog.Builder(mContext)
+                .setTitle(R.string.theme_presets_import)
+                .setView(input)
+                .setPositiveButton(R.string.theme_presets_import, (dialog, which) -> {
+                    try {
+                        List<ThemePreset> imported = ThemePreset.parse(input.getText().toString());
+                        mPresetStore.saveAll(imported);
+                        Toast.makeText(mContext, getString(R.string.theme_presets_imported,
+                                imported.size()), Toast.LENGTH_SHORT).show();
+                    } catch (JSONException e) {
+                        Toast.makeText(mContext, R.string.theme_presets_import_failed,
+                                Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .setNegativeButton(R.string.menu_cancel, null)
+                .show();
+    }
+
+    private void exportPresets(List<ThemePreset> presets) {
+        try {
+            Intent intent = new Intent(Intent.ACTION_SEND)
+                    .setType("text/plain")
+                    .putExtra(Intent.EXTRA_TEXT, ThemePreset.toJson(presets));
+            startActivity(Intent.createChooser(intent, getString(R.string.theme_presets_export)));
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to export presets", e);
+        }
+    }
+
+    private void applyPreset(ThemePreset preset) {
+        if (preset.getAccentColor() != null) {
+            // The preset accent wins over a drag that has not been committed yet
+            mHandler.removeCallbacks(mCommitAccentColor);
+            mPendingAccentColor = null;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            OverlayPlan plan;
+            try {
+                plan = preset.apply(mContext, mOverlayManager);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Failed to apply preset " + preset.getName(), e);
+                return;
+            } finally {
+                // Our own writes, do not wait for ACTION_OVERLAY_CHANGED
+                mOverlayState.invalidate();
             }
-            mBrightnessSliderStyle.setSummary(mBrightnessSliderStyle.getEntry());
-            return true;
-        } else if (preference == mPanelBg) {
-            String panelbg = (String) newValue;
-            int panelBgValue = Integer.parseInt(panelbg);
-            mPanelBg.setValue(String.valueOf(panelBgValue));
-            String overlayName = getOverlayName(ThemesUtils.PANEL_BG_STYLE);
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
+            ThreadUtils.postOnMainThread(() -> {
+                if (!isAdded()) {
+                    return;
+                }
+                bindPreset(preset, plan);
+            });
+        });
+    }
+
+    private void bindPreset(ThemePreset preset, OverlayPlan plan) {
+        mThemeSwitch.setValue(String.valueOf(preset.getThemeSwitch()));
+        mThemeSwitch.setSummary(mThemeSwitch.getEntry());
+        for (OverlayListPreference picker : mOverlayPickers.keySet()) {
+            Integer value = preset.getValues().get(picker.getKey());
+            if (value != null) {
+                picker.setValue(String.valueOf(value));
+                picker.setSummary(picker.getEntry());
             }
-            if (panelBgValue > 1) {
-                UtilsNad.showSystemUiRestartDialog(getContext());
-                handleOverlays(ThemesUtils.PANEL_BG_STYLE[panelBgValue - 2],
-                        true, mOverlayManager);
+        }
+        if (preset.getAccentColor() != null) {
+            rgbAccentPicker.setNewPreviewColor(
+                    Color.parseColor("#" + preset.getAccentColor()));
+        }
 
+        // Some categories still need SystemUI to pick up the new overlays, once
+        for (Map.Entry<String, Integer> entry : preset.getValues().entrySet()) {
+            OverlayCategory category = OverlayCategories.get(entry.getKey());
+            if (category != null && category.getRestart() == OverlayCategory.RESTART_SYSTEMUI
+                    && plan.getToEnable().contains(category.getOverlay(entry.getValue()))) {
+                refreshSystemUi();
+                break;
             }
-            mPanelBg.setSummary(mPanelBg.getEntry());
-            return true;
-        } else if (preference == mQsShape) {
-            String qqsShape = (String) newValue;
-            String overlayName = getOverlayName(ThemesUtils.QS_SHAPE);
-            int qqsShapeValue = Integer.parseInt(qqsShape);
-            mQsShape.setValue(String.valueOf(qqsShapeValue));
+        }
+    }
+
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object newValue) {
+        if (preference == mThemeSwitch) {
+            final int themeSwitchValue = Integer.parseInt((String) newValue);
+            // The list shows the new value once the overlays were switched
+            ThreadUtils.postOnBackgroundThread(() -> {
+                try {
+                    OverlayCategories.putThemeSwitch(new OverlayTransaction(mOverlayManager),
+                            themeSwitchValue).commit(mUiModeManager);
+                } catch (RemoteException e) {
+                    Log.e(TAG, "Failed to apply theme " + themeSwitchValue, e);
+                    return;
+                } finally {
+                    mOverlayState.invalidate();
+                }
+                ThreadUtils.postOnMainThread(() -> {
+                    if (!isAdded()) {
+                        return;
+                    }
+                    mThemeSwitch.setValue(String.valueOf(themeSwitchValue));
+                    mThemeSwitch.setSummary(mThemeSwitch.getEntry());
+                });
+            });
+            return false;
+        } else if (mOverlayPickers.containsKey(preference)) {
+            OverlayListPreference picker = (OverlayListPreference) preference;
+            OverlayCategory category = mOverlayPickers.get(picker);
+            int value = Integer.parseInt((String) newValue);
+            picker.setValue(String.valueOf(value));
+            String overlayName = mOverlayState.getEnabledOverlay(category.getOverlays());
             if (overlayName != null) {
                 handleOverlays(overlayName, false, mOverlayManager);
             }
-            if (qqsShapeValue > 1) {
-                handleOverlays(ThemesUtils.QS_SHAPE[qqsShapeValue - 2],
-                        true, mOverlayManager);
-            }
-            mQsShape.setSummary(mQsShape.getEntry());
-            return true;
-        } else if (preference == mSwitchStyle) {
-            String switchStyle = (String) newValue;
-            String overlayName = getOverlayName(ThemesUtils.SWITCH_STYLE);
-            int switchStyleValue = Integer.parseInt(switchStyle);
-            mQsShape.setValue(String.valueOf(switchStyleValue));
-            if (overlayName != null) {
-                handleOverlays(overlayName, false, mOverlayManager);
+            String newOverlay = category.getOverlay(value);
+            if (newOverlay != null) {
+                handleOverlays(newOverlay, true, mOverlayManager);
             }
-            if (switchStyleValue > 1) {
-                handleOverlays(ThemesUtils.SWITCH_STYLE[switchStyleValue - 2],
-                        true, mOverlayManager);
+            // A second change before the broadcast must see this one
+            mOverlayState.invalidate();
+            if (newOverlay != null && category.getRestart() == OverlayCategory.RESTART_SYSTEMUI) {
+                refreshSystemUi();
             }
-            mSwitchStyle.setSummary(mSwitchStyle.getEntry());
+            picker.setSummary(picker.getEntry());
             return true;
         } else if (preference == rgbAccentPicker) {
             int color = (Integer) newValue;
-            String hexColor = String.format("%08X", (0xFFFFFFFF & color));
-            Settings.Secure.putStringForUser(mContext.getContentResolver(),
-                        Settings.Secure.ACCENT_COLOR,
-                        hexColor, UserHandle.USER_CURRENT);
-            try {
-                 mOverlayManager.reloadAssets("com.android.settings", UserHandle.USER_CURRENT);
-                 mOverlayManager.reloadAssets("com.android.systemui", UserHandle.USER_CURRENT);
-             } catch (RemoteException ignored) {
-             }
+            // Preview right away, the setting and the asset reload follow once
+            // the picker has been left alone for ACCENT_COMMIT_DELAY_MS
+            rgbAccentPicker.setNewPreviewColor(color);
+            mPendingAccentColor = String.format("%08X", (0xFFFFFFFF & color));
+            mAccentChanges++;
+            mHandler.removeCallbacks(mCommitAccentColor);
+            mHandler.postDelayed(mCommitAccentColor, ACCENT_COMMIT_DELAY_MS);
             return true;
-
         }
         return false;
     }
 
-    private int getOverlayPosition(String[] overlays) {
-        int position = -1;
-        for (int i = 0; i < overlays.length; i++) {
-            String overlay = overlays[i];
-            if (NadUtils.isThemeEnabled(overlay)) {
-                position = i;
-            }
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (mPendingAccentColor != null) {
+            mHandler.removeCallbacks(mCommitAccentColor);
+            commitAccentColor();
         }
-        return position;
     }
 
-    private String getOverlayName(String[] overlays) {
-        String overlayName = null;
-        for (int i = 0; i < overlays.length; i++) {
-            String overlay = overlays[i];
-            if (NadUtils.isThemeEnabled(overlay)) {
-                overlayName = overlay;
+    /**
+     * Reloads the SystemUI assets in place so the new overlays show up without
+     * killing it. Only if that fails the user is asked to restart SystemUI.
+     */
+    private void refreshSystemUi() {
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final long start = SystemClock.elapsedRealtime();
+            boolean reloaded;
+            try {
+                mOverlayManager.reloadAssets("com.android.systemui", UserHandle.USER_CURRENT);
+                reloaded = true;
+            } catch (RemoteException e) {
+                Log.w(TAG, "Failed to reload SystemUI assets", e);
+                reloaded = false;
+            }
+            if (Build.IS_DEBUGGABLE) {
+                Log.d(TAG, "SystemUI refresh: " + (reloaded ? "asset reload" : "restart")
+                        + " after " + (SystemClock.elapsedRealtime() - start) + "ms");
             }
+            if (reloaded) {
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                if (isAdded()) {
+                    UtilsNad.showSystemUiRestartDialog(getContext());
+                }
+            });
+        });
+    }
+
+    private void commitAccentColor() {
+        if (mPendingAccentColor == null) {
+            return;
+        }
+        Settings.Secure.putStringForUser(mContext.getContentResolver(),
+                Settings.Secure.ACCENT_COLOR,
+                mPendingAccentColor, UserHandle.USER_CURRENT);
+        mPendingAccentColor = null;
+        mAccentCommits++;
+        try {
+            mOverlayManager.reloadAssets("com.android.settings", UserHandle.USER_CURRENT);
+            mOverlayManager.reloadAssets("com.android.systemui", UserHandle.USER_CURRENT);
+        } catch (RemoteException ignored) {
+        }
+        if (Build.IS_DEBUGGABLE) {
+            Log.d(TAG, "Accent committed, " + mAccentChanges + " changes, "
+                    + (mAccentChanges - mAccentCommits) + " reloads avoided");
         }
-        return overlayName;
     }
 
     @Override
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.preferences;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.android.settingslib.utils.ThreadUtils;
+import com.nusantara.wings.ThumbnailDiskStore;
+
+import java.io.File;
+
+/**
+ * Decodes FOD icons into thumbnails of the exact cell size off the main
+ * thread. Thumbnails are kept in a bounded memory cache and written to a
+ * {@link ThumbnailDiskStore} tied to the build, so later sessions skip the
+ * decode.
+ */
+class FODIconThumbnails {
+
+    private static final String DISK_DIR = "fod_thumbnails";
+    private static final int MAX_MEMORY_BYTES = 4 * 1024 * 1024;
+
+    private static FODIconThumbnails sInstance;
+
+    private final Resources mResources;
+    private final Context mContext;
+    private final ThumbnailDiskStore mDiskStore;
+    private final LruCache<String, Bitmap> mCache = new LruCache<String, Bitmap>(MAX_MEMORY_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    static synchronized FODIconThumbnails getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new FODIconThumbnails(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private FODIconThumbnails(Context context) {
+        mContext = context;
+        mResources = context.getResources();
+        // Icons only change with the build, older builds' thumbnails are dropped
+        File root = new File(context.getCacheDir(), DISK_DIR);
+        final File buildDir = new File(root, Integer.toHexString(Build.FINGERPRINT.hashCode()));
+        mDiskStore = new ThumbnailDiskStore(buildDir, 0 /* maxFiles */);
+        ThreadUtils.postOnBackgroundThread(() -> {
+            File[] builds = root.listFiles();
+            if (builds == null) {
+                return;
+            }
+            for (File dir : builds) {
+                if (!dir.equals(buildDir)) {
+                    File[] files = dir.listFiles();
+                    if (files != null) {
+                        for (File file : files) {
+                            file.delete();
+                        }
+                    }
+                    dir.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the thumbnail of {@code resId} in {@code target}, right away if
+     * it is in memory, otherwise once it was loaded. A later call for the
+     * same view wins over a pending one.
+     */
+    void load(int resId, int size, ImageView target) {
+        final String key = resId + ":" + size;
+        target.setTag(key);
+        Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+        target.setImageDrawable(null);
+        ThreadUtils.postOnBackgroundThread(() -> {
+            String diskName = mResources.getResourceEntryName(resId) + "_" + size;
+            Bitmap bitmap = mDiskStore.get(diskName);
+            if (bitmap == null) {
+                bitmap = decode(resId, size);
+                mDiskStore.put(diskName, bitmap);
+            }
+            mCache.put(key, bitmap);
+            final Bitmap thumbnail = bitmap;
+            ThreadUtils.postOnMainThread(() -> {
+                if (key.equals(target.getTag())) {
+                    target.setImageBitmap(thumbnail);
+                }
+            });
+        });
+    }
+
+    private Bitmap decode(int resId, int size) {
+        Bitmap thumbnail = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(thumbnail);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resId, options);
+
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            // Raster icon, subsample while decoding so the full image is never in memory
+            int sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= size
+                    && options.outHeight / (sampleSize * 2) >= size) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            Bitmap source = BitmapFactory.decodeResource(mResources, resId, options);
+            if (source != null) {
+                canvas.drawBitmap(source, null,
+                        fitCenter(source.getWidth(), source.getHeight(), size),
+                        new Paint(Paint.FILTER_BITMAP_FLAG));
+                source.recycle();
+                return thumbnail;
+            }
+        }
+
+        // Vector and other drawables are drawn straight at the cell size
+        Drawable drawable = mContext.getDrawable(resId);
+        int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : size;
+        int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : size;
+        Rect bounds = new Rect();
+        fitCenter(width, height, size).round(bounds);
+        drawable.setBounds(bounds);
+        drawable.draw(canvas);
+        return thumbnail;
+    }
+
+    private static RectF fitCenter(int width, int height, int size) {
+        float scale = Math.min((float) size / width, (float) size / height);
+        float w = width * scale;
+        float h = height * scale;
+        float left = (size - w) / 2f;
+        float top = (size - h) / 2f;
+        return new RectF(left, top, left + w, top + h);
+    }
+}
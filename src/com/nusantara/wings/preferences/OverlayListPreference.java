@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.preferences;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import androidx.preference.ListPreference;
+import androidx.preference.PreferenceViewHolder;
+
+/**
+ * List preference whose value is only resolved when its row is bound for the
+ * first time, so rows that never scroll into view cost nothing.
+ */
+public class OverlayListPreference extends ListPreference {
+
+    public interface OnFirstBindListener {
+        void onFirstBind(OverlayListPreference preference);
+    }
+
+    private OnFirstBindListener mOnFirstBindListener;
+    private boolean mBound;
+
+    public OverlayListPreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public void setOnFirstBindListener(OnFirstBindListener listener) {
+        mOnFirstBindListener = listener;
+    }
+
+    @Override
+    public void onBindViewHolder(PreferenceViewHolder holder) {
+        super.onBindViewHolder(holder);
+        if (!mBound && mOnFirstBindListener != null) {
+            mBound = true;
+            mOnFirstBindListener.onFirstBind(this);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.preferences;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+
+import com.android.settingslib.utils.ThreadUtils;
+import com.nusantara.wings.AppInfoCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Category listing the packages stored in a pipe-delimited Settings.System
+ * value, one row per package. Adding or removing a package touches only its
+ * row, the setting is rewritten from the in-memory set and app labels and
+ * icons are loaded off the main thread through {@link AppInfoCache}. A row
+ * is only added once its label is loaded, so title ordering still applies.
+ */
+public class PackageListPreferenceGroup extends PreferenceCategory {
+
+    private static final String SEPARATOR = "|";
+
+    private final PackageManager mPackageManager;
+    private final AppInfoCache mAppInfoCache;
+    private final Set<String> mPackages = new LinkedHashSet<>();
+    private final Map<String, Preference> mPendingRows = new HashMap<>();
+
+    private String mSettingKey;
+    private String mPackageList;
+    private Preference.OnPreferenceClickListener mRowClickListener;
+
+    public PackageListPreferenceGroup(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mPackageManager = context.getPackageManager();
+        mAppInfoCache = AppInfoCache.getInstance(context);
+    }
+
+    /**
+     * @param settingKey Settings.System key holding the package list
+     * @param rowClickListener set on every package row
+     */
+    public void setup(String settingKey, Preference.OnPreferenceClickListener rowClickListener) {
+        mSettingKey = settingKey;
+        mRowClickListener = rowClickListener;
+    }
+
+    /**
+     * Re-reads the setting and applies the difference to the rows. Does
+     * nothing if the value did not change since it was last read or written.
+     */
+    public void refresh() {
+        String value = Settings.System.getString(getContext().getContentResolver(),
+                mSettingKey);
+        if (mPackageList != null && TextUtils.equals(mPackageList, value)) {
+            return;
+        }
+        mPackageList = value;
+
+        Set<String> packages = new LinkedHashSet<>();
+        if (value != null) {
+            for (String item : TextUtils.split(value, "\\|")) {
+                if (!TextUtils.isEmpty(item)) {
+                    packages.add(item);
+                }
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String packageName : mPackages) {
+            if (!packages.contains(packageName)) {
+                removed.add(packageName);
+            }
+        }
+        for (String packageName : removed) {
+            mPackages.remove(packageName);
+            removeRow(packageName);
+        }
+        for (String packageName : packages) {
+            if (mPackages.add(packageName)) {
+                addRow(packageName);
+            }
+        }
+    }
+
+    public boolean containsPackage(String packageName) {
+        return mPackages.contains(packageName);
+    }
+
+    /**
+     * @return false if the package was already listed
+     */
+    public boolean addPackage(String packageName) {
+        if (!mPackages.add(packageName)) {
+            return false;
+        }
+        addRow(packageName);
+        save();
+        return true;
+    }
+
+    /**
+     * @return false if the package was not listed
+     */
+    public boolean removePackage(String packageName) {
+        if (!mPackages.remove(packageName)) {
+            return false;
+        }
+        removeRow(packageName);
+        save();
+        return true;
+    }
+
+    private void save() {
+        mPackageList = TextUtils.join(SEPARATOR, mPackages);
+        Settings.System.putString(getContext().getContentResolver(), mSettingKey,
+                mPackageList);
+    }
+
+    private void addRow(String packageName) {
+        Preference row = new Preference(getContext());
+        row.setKey(packageName);
+        row.setPersistent(false);
+        row.setOnPreferenceClickListener(mRowClickListener);
+        // Added once the label is known, the category sorts rows by title on add
+        mPendingRows.put(packageName, row);
+
+        ThreadUtils.postOnBackgroundThread(() -> {
+            ApplicationInfo info;
+            try {
+                info = mPackageManager.getApplicationInfo(packageName, 0);
+            } catch (PackageManager.NameNotFoundException e) {
+                info = null;
+            }
+            final CharSequence label = info != null ? mAppInfoCache.getLabel(info) : null;
+            final Drawable icon = info != null ? mAppInfoCache.getIcon(info) : null;
+            ThreadUtils.postOnMainThread(() -> {
+                // The row may have been removed or replaced while loading
+                if (mPendingRows.get(packageName) != row) {
+                    return;
+                }
+                mPendingRows.remove(packageName);
+                if (label == null) {
+                    // Uninstalled apps stay in the setting but are not shown
+                    return;
+                }
+                row.setTitle(label);
+                row.setIcon(icon);
+                addPreference(row);
+            });
+        });
+    }
+
+    private void removeRow(String packageName) {
+        mPendingRows.remove(packageName);
+        Preference row = findPreference(packageName);
+        if (row != null) {
+            removePreference(row);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.preferences;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.SeekBar;
+
+import com.nusantara.support.preferences.CustomSeekBarPreference;
+
+/**
+ * Seek bar preference that reports when the user lifts the finger, so values
+ * held back during the drag can be written right away.
+ */
+public class TrackingSeekBarPreference extends CustomSeekBarPreference {
+
+    public interface OnStopTrackingListener {
+        void onStopTracking(TrackingSeekBarPreference preference);
+    }
+
+    private OnStopTrackingListener mOnStopTrackingListener;
+
+    public TrackingSeekBarPreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public void setOnStopTrackingListener(OnStopTrackingListener listener) {
+        mOnStopTrackingListener = listener;
+    }
+
+    @Override
+    public void onStopTrackingTouch(SeekBar seekBar) {
+        super.onStopTrackingTouch(seekBar);
+        if (mOnStopTrackingListener != null) {
+            mOnStopTrackingListener.onStopTracking(this);
+        }
+    }
+}
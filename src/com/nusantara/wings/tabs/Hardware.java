@@ -23,9 +23,10 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
-import com.android.settings.SettingsPreferenceFragment;
+import com.nusantara.wings.DeviceCapabilities;
+import com.nusantara.wings.WingsTabFragment;
 
-public class Hardware extends SettingsPreferenceFragment
+public class Hardware extends WingsTabFragment
         implements Preference.OnPreferenceChangeListener {
 
     private static final String BUTTONS_CATEGORY = "buttons_category";
@@ -36,19 +37,20 @@ public class Hardware extends SettingsPreferenceFragment
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.tab_hardware);
+        final DeviceCapabilities caps = DeviceCapabilities.get(getContext());
 
         Preference Buttons = findPreference(BUTTONS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_buttons)) {
+        if (!caps.hasCategory(R.bool.has_buttons)) {
             getPreferenceScreen().removePreference(Buttons);
         }
 
         Preference Navigation = findPreference(NAVIGATION_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_navigation)) {
+        if (!caps.hasCategory(R.bool.has_navigation)) {
             getPreferenceScreen().removePreference(Navigation);
         }
 
         Preference PowerMenu = findPreference(POWERMENU_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_powermenu)) {
+        if (!caps.hasCategory(R.bool.has_powermenu)) {
             getPreferenceScreen().removePreference(PowerMenu);
         }
     }
@@ -22,11 +22,11 @@ import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
-import com.android.settings.SettingsPreferenceFragment;
+import com.nusantara.wings.DeviceCapabilities;
+import com.nusantara.wings.WingsTabFragment;
 import com.android.internal.logging.nano.MetricsProto;
-import com.android.internal.util.nad.NadUtils;
 
-public class Lockscreen extends SettingsPreferenceFragment
+public class Lockscreen extends WingsTabFragment
         implements Preference.OnPreferenceChangeListener {
 
     private static final String FINGERPRINT_PREFS_CATEGORY = "fingerprint_prefs_category";
@@ -36,17 +36,18 @@ public class Lockscreen extends SettingsPreferenceFragment
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.tab_lockscreen);
+        final DeviceCapabilities caps = DeviceCapabilities.get(getContext());
 
         Preference LockscreenItems = findPreference(LOCKSCREEN_ITEMS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_lockscreen_items)) {
+        if (!caps.hasCategory(R.bool.has_lockscreen_items)) {
             getPreferenceScreen().removePreference(LockscreenItems);
         }
 
         Preference FingerprintPrefs = findPreference(FINGERPRINT_PREFS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_fingerprint_prefs)) {
+        if (!caps.hasCategory(R.bool.has_fingerprint_prefs)) {
             getPreferenceScreen().removePreference(FingerprintPrefs);
         } else {
-            if (!NadUtils.hasFingerprintSupport(getContext())) {
+            if (!caps.isFingerprintSupported()) {
                 getPreferenceScreen().removePreference(FingerprintPrefs);
             }
         }
@@ -23,9 +23,10 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
-import com.android.settings.SettingsPreferenceFragment;
+import com.nusantara.wings.DeviceCapabilities;
+import com.nusantara.wings.WingsTabFragment;
 
-public class Statusbar extends SettingsPreferenceFragment
+public class Statusbar extends WingsTabFragment
         implements Preference.OnPreferenceChangeListener {
 
     private static final String BATTERY_CATEGORY = "battery_options_category";
@@ -39,34 +40,35 @@ public class Statusbar extends SettingsPreferenceFragment
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.tab_statusbar);
+        final DeviceCapabilities caps = DeviceCapabilities.get(getContext());
 
         Preference BatteryOptions = findPreference(BATTERY_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_battery_options)) {
+        if (!caps.hasCategory(R.bool.has_battery_options)) {
             getPreferenceScreen().removePreference(BatteryOptions);
         }
 
         Preference CarrierLabel = findPreference(CARRIER_LABEL_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_carrier_label)) {
+        if (!caps.hasCategory(R.bool.has_carrier_label)) {
             getPreferenceScreen().removePreference(CarrierLabel);
         }
 
         Preference ClockOptions = findPreference(CLOCK_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_clock_options)) {
+        if (!caps.hasCategory(R.bool.has_clock_options)) {
             getPreferenceScreen().removePreference(ClockOptions);
         }
 
         Preference IconManager = findPreference(ICON_MANAGER_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_icon_manager)) {
+        if (!caps.hasCategory(R.bool.has_icon_manager)) {
             getPreferenceScreen().removePreference(IconManager);
         }
 
         Preference QuickSettings = findPreference(QUICK_SETTINGS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_quick_settings)) {
+        if (!caps.hasCategory(R.bool.has_quick_settings)) {
             getPreferenceScreen().removePreference(QuickSettings);
         }
 
         Preference Traffic = findPreference(TRAFFIC_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_traffic)) {
+        if (!caps.hasCategory(R.bool.has_traffic)) {
             getPreferenceScreen().removePreference(Traffic);
         }
     }
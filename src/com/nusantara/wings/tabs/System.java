@@ -23,9 +23,10 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
-import com.android.settings.SettingsPreferenceFragment;
+import com.nusantara.wings.DeviceCapabilities;
+import com.nusantara.wings.WingsTabFragment;
 
-public class System extends SettingsPreferenceFragment
+public class System extends WingsTabFragment
         implements Preference.OnPreferenceChangeListener {
 
 
@@ -38,24 +39,25 @@ public class System extends SettingsPreferenceFragment
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.tab_system);
+        final DeviceCapabilities caps = DeviceCapabilities.get(getContext());
 
         Preference NusantaraParts = findPreference(NUSANTARA_PARTS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_nusantara_parts_available)) {
+        if (!caps.hasCategory(R.bool.has_nusantara_parts_available)) {
             getPreferenceScreen().removePreference(NusantaraParts);
         }
 
         Preference Notifications = findPreference(NOTIFICATIONS_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_notifications)) {
+        if (!caps.hasCategory(R.bool.has_notifications)) {
             getPreferenceScreen().removePreference(Notifications);
         }
 
         Preference MiscOptions = findPreference(MISC_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_misc_options)) {
+        if (!caps.hasCategory(R.bool.has_misc_options)) {
             getPreferenceScreen().removePreference(MiscOptions);
         }
 
         Preference Themes = findPreference(THEMES_CATEGORY);
-        if (!getResources().getBoolean(R.bool.has_themes)) {
+        if (!caps.hasCategory(R.bool.has_themes)) {
             getPreferenceScreen().removePreference(Themes);
         }
     }
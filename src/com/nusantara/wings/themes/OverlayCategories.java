@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+import static com.nusantara.wings.themes.OverlayCategory.RESTART_NONE;
+import static com.nusantara.wings.themes.OverlayCategory.RESTART_SYSTEMUI;
+
+import android.app.UiModeManager;
+
+import com.android.internal.util.nad.ThemesUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of the overlay categories shown on the Themes screen, keyed by
+ * preference key. Adding a category only takes an entry in the table below
+ * and an OverlayListPreference with the same key in nad_themes.xml.
+ */
+public class OverlayCategories {
+
+    public static final String KEY_THEME_SWITCH = "theme_switch";
+
+    public static final String[][] DARK_BACKGROUNDS = {
+            ThemesUtils.PITCH_BLACK,
+            ThemesUtils.SOLARIZED_DARK,
+            ThemesUtils.NAD_CLEAR,
+            ThemesUtils.MATERIAL_OCEAN,
+    };
+
+    // The system overlay of each DARK_BACKGROUNDS entry, used to detect it
+    public static final String[] DARK_BACKGROUND_MARKERS = {
+            "com.android.theme.color.pitchblack.system",
+            "com.android.theme.color.solarized.system",
+            "com.android.theme.color.nadclear.system",
+            "com.android.theme.color.ocean.system",
+    };
+
+    private static final OverlayCategory[] CATEGORIES = {
+            new OverlayCategory("statusbar_icons", ThemesUtils.STATUSBAR_ICONS,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("adapative_icon_shape", ThemesUtils.ADAPTIVE_ICON_SHAPE,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("font_picker", ThemesUtils.FONTS,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("theme_navbar_style", ThemesUtils.NAVBAR_STYLES,
+                    RESTART_NONE, 2, true),
+            new OverlayCategory("qs_header_style", ThemesUtils.QS_HEADER_THEMES,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("rounded_ui", ThemesUtils.UI_RADIUS,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("statusbar_height", ThemesUtils.STATUSBAR_HEIGHT,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("brightness_slider_style", ThemesUtils.BRIGHTNESS_SLIDER_THEMES,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("panel_bg", ThemesUtils.PANEL_BG_STYLE,
+                    RESTART_SYSTEMUI, 2, false),
+            new OverlayCategory("qs_shape", ThemesUtils.QS_SHAPE,
+                    RESTART_NONE, 2, false),
+            new OverlayCategory("switch_style", ThemesUtils.SWITCH_STYLE,
+                    RESTART_NONE, 2, false),
+    };
+
+    private static final Map<String, OverlayCategory> BY_KEY;
+
+    static {
+        Map<String, OverlayCategory> byKey = new LinkedHashMap<>();
+        for (OverlayCategory category : CATEGORIES) {
+            byKey.put(category.getKey(), category);
+        }
+        BY_KEY = Collections.unmodifiableMap(byKey);
+    }
+
+    public static Collection<OverlayCategory> getAll() {
+        return BY_KEY.values();
+    }
+
+    /**
+     * @return the category behind preference {@code key}, or null
+     */
+    public static OverlayCategory get(String key) {
+        return BY_KEY.get(key);
+    }
+
+    /**
+     * @return whether {@code value} is a theme switch value, see {@link #putThemeSwitch}
+     */
+    public static boolean isValidThemeSwitch(int value) {
+        return value >= 1 && value < DARK_BACKGROUNDS.length + 3;
+    }
+
+    /**
+     * Adds the theme switch {@code value} to {@code transaction}: 1 is light,
+     * 2 the stock dark theme and 3.. one of {@link #DARK_BACKGROUNDS}.
+     */
+    public static OverlayTransaction putThemeSwitch(OverlayTransaction transaction, int value) {
+        transaction.setNightMode(value == 1
+                ? UiModeManager.MODE_NIGHT_NO : UiModeManager.MODE_NIGHT_YES);
+        for (int i = 0; i < DARK_BACKGROUNDS.length; i++) {
+            transaction.setEnabled(DARK_BACKGROUNDS[i], value == i + 3);
+        }
+        return transaction;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+/**
+ * One row of the Themes screen: a list preference choosing at most one
+ * overlay out of {@link #getOverlays()}.
+ */
+public final class OverlayCategory {
+
+    public static final int RESTART_NONE = 0;
+    public static final int RESTART_SYSTEMUI = 1;
+
+    private final String mKey;
+    private final String[] mOverlays;
+    private final int mRestart;
+    private final int mValueOffset;
+    private final boolean mThreeButtonNavbarOnly;
+
+    /**
+     * @param key preference key of the row
+     * @param overlays overlays of the category, in list value order
+     * @param restart what has to be restarted once an overlay is enabled
+     * @param valueOffset list value of the first overlay, the stock look is one below
+     * @param threeButtonNavbarOnly whether the row only makes sense with the 3 button navbar
+     */
+    public OverlayCategory(String key, String[] overlays, int restart, int valueOffset,
+            boolean threeButtonNavbarOnly) {
+        mKey = key;
+        mOverlays = overlays;
+        mRestart = restart;
+        mValueOffset = valueOffset;
+        mThreeButtonNavbarOnly = threeButtonNavbarOnly;
+    }
+
+    public String getKey() {
+        return mKey;
+    }
+
+    public String[] getOverlays() {
+        return mOverlays;
+    }
+
+    public int getRestart() {
+        return mRestart;
+    }
+
+    public boolean isThreeButtonNavbarOnly() {
+        return mThreeButtonNavbarOnly;
+    }
+
+    public int getStockValue() {
+        return mValueOffset - 1;
+    }
+
+    /**
+     * @param position index of the enabled overlay, or -1 for none
+     */
+    public int toValue(int position) {
+        return position != -1 ? position + mValueOffset : getStockValue();
+    }
+
+    /**
+     * @return whether {@code value} is the stock look or one of the overlays
+     */
+    public boolean isValidValue(int value) {
+        return value >= getStockValue() && value < mValueOffset + mOverlays.length;
+    }
+
+    /**
+     * @return the overlay selected by {@code value}, or null for the stock look
+     */
+    public String getOverlay(int value) {
+        int position = value - mValueOffset;
+        return position >= 0 && position < mOverlays.length ? mOverlays[position] : null;
+    }
+}
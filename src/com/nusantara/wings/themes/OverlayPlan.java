@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The minimal set of changes needed to move from the current overlay state to
+ * the desired one. Plain Java on purpose, no framework calls in here.
+ */
+public final class OverlayPlan {
+
+    public static final int NIGHT_MODE_UNCHANGED = -1;
+
+    private final List<String> mToDisable;
+    private final List<String> mToEnable;
+    private final int mNightMode;
+
+    private OverlayPlan(List<String> toDisable, List<String> toEnable, int nightMode) {
+        mToDisable = Collections.unmodifiableList(toDisable);
+        mToEnable = Collections.unmodifiableList(toEnable);
+        mNightMode = nightMode;
+    }
+
+    /**
+     * @param enabled packages currently enabled
+     * @param desired requested state per package, in request order
+     * @param currentNightMode night mode reported by UiModeManager
+     * @param desiredNightMode requested night mode or {@link #NIGHT_MODE_UNCHANGED}
+     */
+    public static OverlayPlan compute(Set<String> enabled, Map<String, Boolean> desired,
+            int currentNightMode, int desiredNightMode) {
+        List<String> toDisable = new ArrayList<>();
+        List<String> toEnable = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : desired.entrySet()) {
+            String packageName = entry.getKey();
+            boolean want = entry.getValue();
+            if (want == enabled.contains(packageName)) {
+                continue;
+            }
+            if (want) {
+                toEnable.add(packageName);
+            } else {
+                toDisable.add(packageName);
+            }
+        }
+        int nightMode = desiredNightMode == currentNightMode
+                ? NIGHT_MODE_UNCHANGED : desiredNightMode;
+        return new OverlayPlan(toDisable, toEnable, nightMode);
+    }
+
+    public List<String> getToDisable() {
+        return mToDisable;
+    }
+
+    public List<String> getToEnable() {
+        return mToEnable;
+    }
+
+    public int getNightMode() {
+        return mNightMode;
+    }
+
+    public boolean changesNightMode() {
+        return mNightMode != NIGHT_MODE_UNCHANGED;
+    }
+
+    public boolean isEmpty() {
+        return mToDisable.isEmpty() && mToEnable.isEmpty() && !changesNightMode();
+    }
+
+    @Override
+    public String toString() {
+        return "OverlayPlan{disable=" + mToDisable + ", enable=" + mToEnable
+                + ", nightMode=" + mNightMode + "}";
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+import static android.os.UserHandle.USER_SYSTEM;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.om.IOverlayManager;
+import android.content.om.OverlayInfo;
+import android.os.RemoteException;
+import android.os.ServiceManager;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process wide snapshot of which overlays are enabled. The snapshot is fetched
+ * with one getAllOverlays call and kept until the overlay manager broadcasts a
+ * change, so screens can resolve every category without extra binder calls.
+ * Callers that change overlays themselves invalidate it right after, the
+ * broadcast may arrive after their next read.
+ */
+public class OverlayStateIndex {
+
+    private static final String TAG = "OverlayStateIndex";
+
+    private static OverlayStateIndex sInstance;
+
+    private final IOverlayManager mOverlayManager;
+    private final Map<String[], Integer> mPositions = new IdentityHashMap<>();
+    private Set<String> mEnabled;
+
+    private final BroadcastReceiver mOverlayChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            invalidate();
+        }
+    };
+
+    public static synchronized OverlayStateIndex getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new OverlayStateIndex(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private OverlayStateIndex(Context context) {
+        mOverlayManager = IOverlayManager.Stub.asInterface(
+                ServiceManager.getService(Context.OVERLAY_SERVICE));
+        IntentFilter filter = new IntentFilter(Intent.ACTION_OVERLAY_CHANGED);
+        filter.addDataScheme("package");
+        context.registerReceiver(mOverlayChangedReceiver, filter);
+    }
+
+    public synchronized void invalidate() {
+        mEnabled = null;
+        mPositions.clear();
+    }
+
+    public synchronized boolean isEnabled(String packageName) {
+        Set<String> enabled = getEnabled();
+        return enabled != null && enabled.contains(packageName);
+    }
+
+    /**
+     * @return index of the enabled overlay inside {@code category}, or -1 when
+     * none is enabled. Resolved once per category and snapshot.
+     */
+    public synchronized int getPosition(String[] category) {
+        Integer position = mPositions.get(category);
+        if (position == null) {
+            Set<String> enabled = getEnabled();
+            if (enabled == null) {
+                return -1;
+            }
+            position = -1;
+            for (int i = 0; i < category.length; i++) {
+                if (enabled.contains(category[i])) {
+                    position = i;
+                }
+            }
+            mPositions.put(category, position);
+        }
+        return position;
+    }
+
+    public String getEnabledOverlay(String[] category) {
+        int position = getPosition(category);
+        return position != -1 ? category[position] : null;
+    }
+
+    /**
+     * @return the enabled overlays, or null if they could not be queried. A
+     * failed query is not cached, the next read tries again.
+     */
+    private Set<String> getEnabled() {
+        if (mEnabled == null) {
+            try {
+                mEnabled = queryEnabled(mOverlayManager);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Failed to query overlays", e);
+            }
+        }
+        return mEnabled;
+    }
+
+    /**
+     * Lets a failed query through, callers must not mistake it for "nothing
+     * enabled".
+     */
+    static Set<String> queryEnabled(IOverlayManager overlayManager) throws RemoteException {
+        Set<String> enabled = new HashSet<>();
+        Map<String, List<OverlayInfo>> all = overlayManager.getAllOverlays(USER_SYSTEM);
+        if (all == null) {
+            return enabled;
+        }
+        for (List<OverlayInfo> overlays : all.values()) {
+            for (OverlayInfo info : overlays) {
+                if (info.isEnabled()) {
+                    enabled.add(info.packageName);
+                }
+            }
+        }
+        return enabled;
+    }
+}
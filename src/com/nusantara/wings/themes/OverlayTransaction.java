@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+import static android.os.UserHandle.USER_SYSTEM;
+
+import android.app.UiModeManager;
+import android.content.om.IOverlayManager;
+import android.os.RemoteException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the wanted overlay state and applies only what differs from the
+ * current one. Night mode is set at most once per commit.
+ */
+public class OverlayTransaction {
+
+    private final IOverlayManager mOverlayManager;
+    private final Map<String, Boolean> mRequests = new LinkedHashMap<>();
+    private int mNightMode = OverlayPlan.NIGHT_MODE_UNCHANGED;
+
+    public OverlayTransaction(IOverlayManager overlayManager) {
+        mOverlayManager = overlayManager;
+    }
+
+    public OverlayTransaction setEnabled(String packageName, boolean enabled) {
+        mRequests.put(packageName, enabled);
+        return this;
+    }
+
+    public OverlayTransaction setEnabled(String[] packageNames, boolean enabled) {
+        for (String packageName : packageNames) {
+            mRequests.put(packageName, enabled);
+        }
+        return this;
+    }
+
+    /**
+     * Enables {@code packageName} and disables every other overlay of the
+     * category. A null package leaves the whole category disabled.
+     */
+    public OverlayTransaction setExclusive(String[] category, String packageName) {
+        for (String overlay : category) {
+            mRequests.put(overlay, overlay.equals(packageName));
+        }
+        return this;
+    }
+
+    public OverlayTransaction setNightMode(int mode) {
+        mNightMode = mode;
+        return this;
+    }
+
+    /**
+     * @throws RemoteException if the current overlay state could not be read,
+     * planning against an empty state would leave overlays enabled
+     */
+    public OverlayPlan plan(UiModeManager uiModeManager) throws RemoteException {
+        int currentNightMode = uiModeManager != null
+                ? uiModeManager.getNightMode() : OverlayPlan.NIGHT_MODE_UNCHANGED;
+        int desiredNightMode = uiModeManager != null
+                ? mNightMode : OverlayPlan.NIGHT_MODE_UNCHANGED;
+        return OverlayPlan.compute(OverlayStateIndex.queryEnabled(mOverlayManager), mRequests,
+                currentNightMode, desiredNightMode);
+    }
+
+    public OverlayPlan commit(UiModeManager uiModeManager) throws RemoteException {
+        OverlayPlan plan = plan(uiModeManager);
+        apply(plan, uiModeManager);
+        return plan;
+    }
+
+    /**
+     * Disables before enabling so two overlays of one category are never on
+     * together, then switches night mode so the resulting configuration change
+     * already sees the new overlays.
+     *
+     * @throws RemoteException if an overlay could not be switched, night mode
+     * is left alone then
+     */
+    public void apply(OverlayPlan plan, UiModeManager uiModeManager) throws RemoteException {
+        for (String packageName : plan.getToDisable()) {
+            mOverlayManager.setEnabled(packageName, false, USER_SYSTEM);
+        }
+        for (String packageName : plan.getToEnable()) {
+            mOverlayManager.setEnabled(packageName, true, USER_SYSTEM);
+        }
+        if (plan.changesNightMode() && uiModeManager != null) {
+            uiModeManager.setNightMode(plan.getNightMode());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+import static android.os.UserHandle.USER_CURRENT;
+
+import android.app.UiModeManager;
+import android.content.Context;
+import android.content.om.IOverlayManager;
+import android.os.RemoteException;
+import android.provider.Settings;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A named look: the theme switch value (night mode and dark background), the
+ * value of every overlay category and optionally the accent color.
+ */
+public class ThemePreset {
+
+    private static final String TAG = "ThemePreset";
+
+    private static final String JSON_NAME = "name";
+    private static final String JSON_THEME = "theme";
+    private static final String JSON_ACCENT = "accent";
+    private static final String JSON_OVERLAYS = "overlays";
+
+    // ACCENT_COLOR is read back with Color.parseColor("#" + value)
+    private static final Pattern ACCENT_COLOR = Pattern.compile("[0-9A-Fa-f]{6}|[0-9A-Fa-f]{8}");
+
+    private final String mName;
+    private final int mThemeSwitch;
+    private final String mAccentColor;
+    private final Map<String, Integer> mValues;
+
+    /**
+     * @param themeSwitch theme switch list value, see {@link OverlayCategories#putThemeSwitch}
+     * @param accentColor ACCENT_COLOR as stored in Settings.Secure, or null to leave it alone
+     * @param values list value per {@link OverlayCategory} key
+     */
+    public ThemePreset(String name, int themeSwitch, String accentColor,
+            Map<String, Integer> values) {
+        mName = name;
+        mThemeSwitch = themeSwitch;
+        mAccentColor = accentColor;
+        mValues = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getThemeSwitch() {
+        return mThemeSwitch;
+    }
+
+    public String getAccentColor() {
+        return mAccentColor;
+    }
+
+    public Map<String, Integer> getValues() {
+        return mValues;
+    }
+
+    /**
+     * Applies every category with one overlay transaction and reloads assets
+     * once at the end if the accent changed. Makes binder calls and settings
+     * writes, so it has to be called off the main thread.
+     *
+     * @return the plan that was committed
+     * @throws RemoteException if the overlay state could not be read, nothing
+     * is applied then
+     */
+    public OverlayPlan apply(Context context, IOverlayManager overlayManager)
+            throws RemoteException {
+        UiModeManager uiModeManager = context.getSystemService(UiModeManager.class);
+        OverlayTransaction transaction = OverlayCategories.putThemeSwitch(
+                new OverlayTransaction(overlayManager), mThemeSwitch);
+        for (Map.Entry<String, Integer> entry : mValues.entrySet()) {
+            OverlayCategory category = OverlayCategories.get(entry.getKey());
+            if (category != null) {
+                transaction.setExclusive(category.getOverlays(),
+                        category.getOverlay(entry.getValue()));
+            }
+        }
+        OverlayPlan plan = transaction.commit(uiModeManager);
+
+        if (mAccentColor != null) {
+            Settings.Secure.putStringForUser(context.getContentResolver(),
+                    Settings.Secure.ACCENT_COLOR, mAccentColor, USER_CURRENT);
+            try {
+                overlayManager.reloadAssets("com.android.settings", USER_CURRENT);
+                overlayManager.reloadAssets("com.android.systemui", USER_CURRENT);
+            } catch (RemoteException e) {
+                Log.e(TAG, "Failed to reload assets", e);
+            }
+        }
+        return plan;
+    }
+
+    public JSONObject toJson() throws JSONException {
+        JSONObject overlays = new JSONObject();
+        for (Map.Entry<String, Integer> entry : mValues.entrySet()) {
+            overlays.put(entry.getKey(), entry.getValue());
+        }
+        JSONObject json = new JSONObject();
+        json.put(JSON_NAME, mName);
+        json.put(JSON_THEME, mThemeSwitch);
+        if (mAccentColor != null) {
+            json.put(JSON_ACCENT, mAccentColor);
+        }
+        json.put(JSON_OVERLAYS, overlays);
+        return json;
+    }
+
+    /**
+     * @throws JSONException if the preset is malformed or holds a value the
+     * Themes screen could not show, nothing of it should be applied then
+     */
+    public static ThemePreset fromJson(JSONObject json) throws JSONException {
+        int themeSwitch = json.getInt(JSON_THEME);
+        if (!OverlayCategories.isValidThemeSwitch(themeSwitch)) {
+            throw new JSONException("Invalid theme " + themeSwitch);
+        }
+        String accentColor = json.optString(JSON_ACCENT, null);
+        if (accentColor != null && !ACCENT_COLOR.matcher(accentColor).matches()) {
+            throw new JSONException("Invalid accent color " + accentColor);
+        }
+        Map<String, Integer> values = new LinkedHashMap<>();
+        JSONObject overlays = json.optJSONObject(JSON_OVERLAYS);
+        if (overlays != null) {
+            Iterator<String> keys = overlays.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                int value = overlays.getInt(key);
+                OverlayCategory category = OverlayCategories.get(key);
+                if (category == null) {
+                    throw new JSONException("Unknown category " + key);
+                }
+                if (!category.isValidValue(value)) {
+                    throw new JSONException("Invalid value " + value + " for " + key);
+                }
+                values.put(key, value);
+            }
+        }
+        return new ThemePreset(json.getString(JSON_NAME), themeSwitch, accentColor, values);
+    }
+
+    public static String toJson(List<ThemePreset> presets) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (ThemePreset preset : presets) {
+            array.put(preset.toJson());
+        }
+        return array.toString(2);
+    }
+
+    /**
+     * Accepts either a single preset object or an array of them, as written
+     * by {@link #toJson(List)}.
+     */
+    public static List<ThemePreset> parse(String text) throws JSONException {
+        List<ThemePreset> presets = new ArrayList<>();
+        String trimmed = text.trim();
+        if (trimmed.startsWith("[")) {
+            JSONArray array = new JSONArray(trimmed);
+            for (int i = 0; i < array.length(); i++) {
+                presets.add(fromJson(array.getJSONObject(i)));
+            }
+        } else {
+            presets.add(fromJson(new JSONObject(trimmed)));
+        }
+        return presets;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 The Nusantara Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nusantara.wings.themes;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps theme presets in their own shared preferences file, one JSON entry
+ * per preset name.
+ */
+public class ThemePresetStore {
+
+    private static final String TAG = "ThemePresetStore";
+    private static final String PREFS_NAME = "theme_presets";
+
+    private final SharedPreferences mPrefs;
+
+    public ThemePresetStore(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public List<ThemePreset> getAll() {
+        List<ThemePreset> presets = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : mPrefs.getAll().entrySet()) {
+            try {
+                presets.add(ThemePreset.fromJson(new JSONObject((String) entry.getValue())));
+            } catch (JSONException | ClassCastException e) {
+                Log.w(TAG, "Dropping unreadable preset " + entry.getKey(), e);
+            }
+        }
+        Collections.sort(presets, (a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+        return presets;
+    }
+
+    public void save(ThemePreset preset) throws JSONException {
+        mPrefs.edit().putString(preset.getName(), preset.toJson().toString()).apply();
+    }
+
+    public void saveAll(List<ThemePreset> presets) throws JSONException {
+        SharedPreferences.Editor editor = mPrefs.edit();
+        for (ThemePreset preset : presets) {
+            editor.putString(preset.getName(), preset.toJson().toString());
+        }
+        editor.apply();
+    }
+
+    public void delete(String name) {
+        mPrefs.edit().remove(name).apply();
+    }
+}